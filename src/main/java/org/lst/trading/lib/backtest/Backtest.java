@@ -2,14 +2,13 @@ package org.lst.trading.lib.backtest;
 
 import org.lst.trading.lib.model.ClosedOrder;
 import org.lst.trading.lib.model.TradingStrategy;
+import org.lst.trading.lib.series.ColumnarStore;
 import org.lst.trading.lib.series.DoubleSeries;
 import org.lst.trading.lib.series.MultipleDoubleSeries;
-import org.lst.trading.lib.series.TimeSeries;
 import org.lst.trading.lib.util.Statistics;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 
 import static org.lst.trading.lib.util.Util.check;
@@ -19,6 +18,7 @@ public class Backtest {
     public static class Result {
         DoubleSeries mPlHistory;
         DoubleSeries mMarginHistory;
+        DoubleSeries mAccountValueHistory;
         double mPl;
         List<ClosedOrder> mOrders;
         double mInitialFund;
@@ -44,7 +44,10 @@ public class Backtest {
         }
 
         public DoubleSeries getAccountValueHistory() {
-            return getPlHistory().plus(mInitialFund);
+            if (mAccountValueHistory == null) {
+                mAccountValueHistory = mPlHistory.lazy().plus(mInitialFund).collect();
+            }
+            return mAccountValueHistory;
         }
 
         public double getFinalValue() {
@@ -60,7 +63,7 @@ public class Backtest {
         }
 
         public double getSharpe() {
-            return Statistics.sharpe(Statistics.returns(getAccountValueHistory().toArray()));
+            return Statistics.sharpe(getAccountValueHistory().lazy().returns(1).toArray());
         }
 
         public double getMaxDrawdown() {
@@ -99,7 +102,8 @@ public class Backtest {
     TradingStrategy mStrategy;
     BacktestTradingContext mContext;
 
-    Iterator<TimeSeries.Entry<List<Double>>> mPriceIterator;
+    ColumnarStore mPrices;
+    int mNextRow;
     Result mResult;
 
     public Backtest(double deposit, MultipleDoubleSeries priceSeries) {
@@ -126,35 +130,30 @@ public class Backtest {
         mStrategy = strategy;
         mContext = new BacktestTradingContext();
 
-        mContext.mInstruments = mPriceSeries.getNames();
-        mContext.mHistory = new MultipleDoubleSeries(mContext.mInstruments);
+        mPrices = mPriceSeries.getStore();
+        mNextRow = 0;
+
+        mContext.initialize(mPriceSeries.getNames(), mPrices, strategy.getMaxLookback());
         mContext.mInitialFunds = mDeposit;
         mContext.mLeverage = mLeverage;
         strategy.onStart(mContext);
-        mPriceIterator = mPriceSeries.iterator();
         nextStep();
     }
 
     public boolean nextStep() {
-        if (!mPriceIterator.hasNext()) {
+        if (mNextRow >= mPrices.size()) {
             finish();
             return false;
         }
 
-        TimeSeries.Entry<List<Double>> entry = mPriceIterator.next();
-
-        mContext.mPrices = entry.getItem();
-        mContext.mInstant = entry.getInstant();
-        mContext.mPl.add(mContext.getPl(), entry.getInstant());
-        mContext.mFundsHistory.add(mContext.getAvailableFunds(), entry.getInstant());
-        if (mContext.getAvailableFunds() < 0) {
+        mContext.step(mNextRow++);
+        if (mContext.getLastAvailableFunds() < 0) {
             finish();
             return false;
         }
 
         mStrategy.onTick();
-
-        mContext.mHistory.add(entry);
+        mContext.recordHistory();
 
         return true;
     }
@@ -171,6 +170,6 @@ public class Backtest {
         mStrategy.onEnd();
 
         List<ClosedOrder> orders = Collections.unmodifiableList(mContext.mClosedOrders);
-        mResult = new Result(mContext.mClosedPl, mContext.mPl, mContext.mFundsHistory, orders, mDeposit, mDeposit + mContext.mClosedPl, mContext.mCommissions);
+        mResult = new Result(mContext.mClosedPl, mContext.getPlHistory(), mContext.getFundsHistory(), orders, mDeposit, mDeposit + mContext.mClosedPl, mContext.mCommissions);
     }
 }
@@ -0,0 +1,70 @@
+package org.lst.trading.lib.backtest;
+
+import org.lst.trading.lib.model.TradingStrategy;
+import org.lst.trading.lib.series.MultipleDoubleSeries;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.lst.trading.lib.util.Util.check;
+
+/**
+ * Runs many strategies over the same prices in a single pass. Each strategy gets its own {@link Backtest}
+ * and account, and every bar is dispatched to all of them before moving on, so the price data is read once
+ * per bar rather than once per strategy.
+ */
+public class BacktestGroup {
+    final double mDeposit;
+    final MultipleDoubleSeries mPriceSeries;
+    final List<Backtest> mBacktests = new ArrayList<>();
+    final List<TradingStrategy> mStrategies = new ArrayList<>();
+
+    public BacktestGroup(double deposit, MultipleDoubleSeries priceSeries) {
+        check(priceSeries.isAscending());
+        mDeposit = deposit;
+        mPriceSeries = priceSeries;
+    }
+
+    /**
+     * Adds a strategy with its own account and returns its backtest, e.g. to set the leverage before running.
+     */
+    public Backtest add(TradingStrategy strategy) {
+        Backtest backtest = new Backtest(mDeposit, mPriceSeries);
+        mBacktests.add(backtest);
+        mStrategies.add(strategy);
+        return backtest;
+    }
+
+    public int size() {
+        return mBacktests.size();
+    }
+
+    /**
+     * Runs all strategies and returns their results in the order they were added.
+     */
+    public List<Backtest.Result> run() {
+        int count = mBacktests.size();
+        Backtest[] active = new Backtest[count];
+        for (int i = 0; i < count; i++) {
+            active[i] = mBacktests.get(i);
+            active[i].initialize(mStrategies.get(i));
+        }
+
+        int activeCount = count;
+        while (activeCount > 0) {
+            int next = 0;
+            for (int i = 0; i < activeCount; i++) {
+                if (active[i].nextStep()) {
+                    active[next++] = active[i];
+                }
+            }
+            activeCount = next;
+        }
+
+        List<Backtest.Result> results = new ArrayList<>(count);
+        for (Backtest backtest : mBacktests) {
+            results.add(backtest.getResult());
+        }
+        return results;
+    }
+}
@@ -3,54 +3,220 @@ package org.lst.trading.lib.backtest;
 import org.lst.trading.lib.model.ClosedOrder;
 import org.lst.trading.lib.model.Order;
 import org.lst.trading.lib.model.TradingContext;
+import org.lst.trading.lib.series.ColumnarStore;
+import org.lst.trading.lib.series.DoubleRingBuffer;
 import org.lst.trading.lib.series.DoubleSeries;
-import org.lst.trading.lib.series.MultipleDoubleSeries;
+import org.lst.trading.lib.series.TimeIndex;
 import org.lst.trading.lib.series.TimeSeries;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static org.lst.trading.lib.util.Util.check;
 
 class BacktestTradingContext implements TradingContext {
     Instant mInstant;
-    List<Double> mPrices;
+    int mInstantRow = -1;
+    ColumnarStore mPrices;
+    int mRow;
     List<String> mInstruments;
-    DoubleSeries mPl = new DoubleSeries("pl");
-    DoubleSeries mFundsHistory = new DoubleSeries("funds");
-    MultipleDoubleSeries mHistory;
+    Map<String, Integer> mInstrumentIndex;
+
+    DoubleRingBuffer[] mWindows;
+
+    double[] mPlHistory;
+    double[] mFundsHistory;
+    int mHistorySize;
+    TimeIndex mHistoryIndex;
+
+    double mOpenPl;
+    double mMarginUsed;
+
+    // Net amount, sum of amount * open price, margin and open lot count per instrument
+    long[] mPosition;
+    double[] mCostBasis;
+    double[] mMargin;
+    int[] mOpenLots;
+
+    // Instruments with at least one open lot, with O(1) insertion and removal
+    int[] mActive;
+    int[] mActiveSlot;
+    int mActiveCount;
+
     double mInitialFunds;
     double mCommissions;
 
     int mOrderId = 1;
 
-    List<SimpleOrder> mOrders = new ArrayList<>();
+    Set<SimpleOrder> mOrders = new LinkedHashSet<>();
 
     double mClosedPl = 0;
     List<SimpleClosedOrder> mClosedOrders = new ArrayList<>();
     double mLeverage;
 
+    void initialize(List<String> instruments, ColumnarStore prices, int maxLookback) {
+        mInstruments = instruments;
+        mPrices = prices;
+        mInstrumentIndex = new HashMap<>();
+        for (int i = 0; i < instruments.size(); i++) {
+            mInstrumentIndex.put(instruments.get(i), i);
+        }
+        mPlHistory = new double[prices.size()];
+        mFundsHistory = new double[prices.size()];
+
+        int count = instruments.size();
+        mPosition = new long[count];
+        mCostBasis = new double[count];
+        mMargin = new double[count];
+        mOpenLots = new int[count];
+        mActive = new int[count];
+        mActiveSlot = new int[count];
+        Arrays.fill(mActiveSlot, -1);
+
+        mWindows = new DoubleRingBuffer[maxLookback > 0 ? count : 0];
+        for (int i = 0; i < mWindows.length; i++) {
+            mWindows[i] = new DoubleRingBuffer(maxLookback);
+        }
+    }
+
+    /**
+     * Advances to {@code row} and records the P/L and available funds of the open position in a single pass.
+     */
+    void step(int row) {
+        mRow = row;
+        valuate();
+        mPlHistory[mHistorySize] = getPl(mOpenPl);
+        mFundsHistory[mHistorySize] = getAvailableFunds(mOpenPl, mMarginUsed);
+        mHistorySize++;
+    }
+
+    /**
+     * Appends the prices of the current row to the lookback windows once the strategy has seen them.
+     */
+    void recordHistory() {
+        for (int i = 0; i < mWindows.length; i++) {
+            mWindows[i].add(mPrices.get(mRow, i));
+        }
+    }
+
+    double getLastAvailableFunds() {
+        return mFundsHistory[mHistorySize - 1];
+    }
+
+    DoubleSeries getPlHistory() {
+        return toSeries(mPlHistory, "pl");
+    }
+
+    DoubleSeries getFundsHistory() {
+        return toSeries(mFundsHistory, "funds");
+    }
+
+    // Both histories share one index over the simulated rows
+    private DoubleSeries toSeries(double[] values, String name) {
+        if (mHistoryIndex == null || mHistoryIndex.size() != mHistorySize) {
+            mHistoryIndex = TimeIndex.copyOf(mPrices.getTimeArray(), 0, mHistorySize);
+        }
+        return new DoubleSeries(mHistoryIndex, Arrays.copyOf(values, mHistorySize), name);
+    }
+
+    int indexOf(String instrument) {
+        Integer index = mInstrumentIndex.get(instrument);
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown instrument " + instrument);
+        }
+        return index;
+    }
+
+    /**
+     * Marks the open position to market, costing O(instruments with open lots) rather than O(open orders).
+     */
+    void valuate() {
+        double pl = 0;
+        double margin = 0;
+        for (int i = 0; i < mActiveCount; i++) {
+            int index = mActive[i];
+            pl += mPosition[index] * mPrices.get(mRow, index) - mCostBasis[index];
+            margin += mMargin[index];
+        }
+        mOpenPl = pl;
+        mMarginUsed = margin;
+    }
+
+    private void open(SimpleOrder order) {
+        int index = order.getInstrumentIndex();
+        if (mOpenLots[index]++ == 0) {
+            mActiveSlot[index] = mActiveCount;
+            mActive[mActiveCount++] = index;
+        }
+        mPosition[index] += order.getAmount();
+        mCostBasis[index] += order.getAmount() * order.getOpenPrice();
+        mMargin[index] += Math.abs(order.getAmount()) * order.getOpenPrice() / mLeverage;
+    }
+
+    private void release(SimpleOrder order) {
+        int index = order.getInstrumentIndex();
+        if (--mOpenLots[index] == 0) {
+            // Reset rather than subtract so rounding errors don't outlive the position
+            mPosition[index] = 0;
+            mCostBasis[index] = 0;
+            mMargin[index] = 0;
+
+            int slot = mActiveSlot[index];
+            int last = mActive[--mActiveCount];
+            mActive[slot] = last;
+            mActiveSlot[last] = slot;
+            mActiveSlot[index] = -1;
+        } else {
+            mPosition[index] -= order.getAmount();
+            mCostBasis[index] -= order.getAmount() * order.getOpenPrice();
+            mMargin[index] -= Math.abs(order.getAmount()) * order.getOpenPrice() / mLeverage;
+        }
+    }
+
     @Override public Instant getTime() {
+        if (mInstantRow != mRow) {
+            mInstant = mPrices.getInstant(mRow);
+            mInstantRow = mRow;
+        }
         return mInstant;
     }
 
     @Override public double getLastPrice(String instrument) {
-        return mPrices.get(mInstruments.indexOf(instrument));
+        return mPrices.get(mRow, indexOf(instrument));
     }
 
     @Override public Stream<TimeSeries.Entry<Double>> getHistory(String instrument) {
         int index = mInstruments.indexOf(instrument);
-        return mHistory.reversedStream().map(t -> new TimeSeries.Entry<>(t.getItem().get(index), t.getInstant()));
+        return IntStream.range(1, mRow + 1).mapToObj(i -> new TimeSeries.Entry<>(mPrices.get(mRow - i, index), mPrices.getTime(mRow - i)));
+    }
+
+    @Override public int getHistory(String instrument, double[] target, int n) {
+        check(n >= 0 && n <= target.length);
+        if (n == 0) {
+            return 0;
+        }
+        if (mWindows.length == 0 || n > mWindows[0].getCapacity()) {
+            throw new IllegalArgumentException("Lookback " + n + " exceeds the strategy's maximum lookback");
+        }
+        return mWindows[indexOf(instrument)].copyTo(target, n);
     }
 
     @Override public Order order(String instrument, boolean buy, int amount) {
         check(amount > 0);
 
-        double price = getLastPrice(instrument);
-        SimpleOrder order = new SimpleOrder(mOrderId++, instrument, getTime(), price, amount * (buy ? 1 : -1));
+        int index = indexOf(instrument);
+        double price = mPrices.get(mRow, index);
+        SimpleOrder order = new SimpleOrder(mOrderId++, instrument, index, getTime(), price, amount * (buy ? 1 : -1));
         mOrders.add(order);
+        open(order);
 
         mCommissions += calculateCommission(order);
 
@@ -59,8 +225,11 @@ class BacktestTradingContext implements TradingContext {
 
     @Override public ClosedOrder close(Order order) {
         SimpleOrder simpleOrder = (SimpleOrder) order;
-        mOrders.remove(simpleOrder);
-        double price = getLastPrice(order.getInstrument());
+        if (!mOrders.remove(simpleOrder)) {
+            throw new IllegalArgumentException("Order " + order.getId() + " is not open");
+        }
+        release(simpleOrder);
+        double price = mPrices.get(mRow, simpleOrder.getInstrumentIndex());
         SimpleClosedOrder closedOrder = new SimpleClosedOrder(simpleOrder, price, getTime());
         mClosedOrders.add(closedOrder);
         mClosedPl += closedOrder.getPl();
@@ -70,7 +239,12 @@ class BacktestTradingContext implements TradingContext {
     }
 
     @Override public double getPl() {
-        return mClosedPl + mOrders.stream().mapToDouble(t -> t.calculatePl(getLastPrice(t.getInstrument()))).sum() - mCommissions;
+        valuate();
+        return getPl(mOpenPl);
+    }
+
+    double getPl(double openPl) {
+        return mClosedPl + openPl - mCommissions;
     }
 
     @Override public List<String> getInstruments() {
@@ -78,7 +252,12 @@ class BacktestTradingContext implements TradingContext {
     }
 
     @Override public double getAvailableFunds() {
-        return getNetValue() - mOrders.stream().mapToDouble(t -> Math.abs(t.getAmount()) * t.getOpenPrice() / mLeverage).sum();
+        valuate();
+        return getAvailableFunds(mOpenPl, mMarginUsed);
+    }
+
+    double getAvailableFunds(double openPl, double marginUsed) {
+        return mInitialFunds + getPl(openPl) - marginUsed;
     }
 
     @Override public double getInitialFunds() {
@@ -0,0 +1,104 @@
+package org.lst.trading.lib.backtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.lst.trading.lib.util.Util.check;
+
+/**
+ * Cartesian product of named parameter values. Points are decoded from their index on demand, so a grid of
+ * any size costs only the memory of its axes.
+ */
+public class ParameterGrid {
+    public static class Point {
+        final ParameterGrid mGrid;
+        final int mIndex;
+        final double[] mValues;
+
+        Point(ParameterGrid grid, int index, double[] values) {
+            mGrid = grid;
+            mIndex = index;
+            mValues = values;
+        }
+
+        public int getIndex() {
+            return mIndex;
+        }
+
+        public double get(String name) {
+            int i = mGrid.mNames.indexOf(name);
+            check(i >= 0, "Unknown parameter " + name);
+            return mValues[i];
+        }
+
+        public double get(String name, double defaultValue) {
+            int i = mGrid.mNames.indexOf(name);
+            return i >= 0 ? mValues[i] : defaultValue;
+        }
+
+        public boolean has(String name) {
+            return mGrid.mNames.contains(name);
+        }
+
+        @Override public String toString() {
+            StringBuilder sb = new StringBuilder("Point{");
+            for (int i = 0; i < mValues.length; i++) {
+                sb.append(i == 0 ? "" : ", ").append(mGrid.mNames.get(i)).append('=').append(mValues[i]);
+            }
+            return sb.append('}').toString();
+        }
+    }
+
+    final List<String> mNames = new ArrayList<>();
+    final List<double[]> mValues = new ArrayList<>();
+
+    public ParameterGrid add(String name, double... values) {
+        check(!mNames.contains(name), "Duplicate parameter " + name);
+        check(values.length > 0);
+        mNames.add(name);
+        mValues.add(Arrays.copyOf(values, values.length));
+        return this;
+    }
+
+    public ParameterGrid range(String name, double from, double to, int steps) {
+        check(steps > 0);
+        double[] values = new double[steps];
+        for (int i = 0; i < steps; i++) {
+            values[i] = steps == 1 ? from : from + (to - from) * i / (steps - 1);
+        }
+        return add(name, values);
+    }
+
+    public List<String> getNames() {
+        return mNames;
+    }
+
+    public int size() {
+        long size = 1;
+        for (double[] values : mValues) {
+            size *= values.length;
+            check(size <= Integer.MAX_VALUE, "Grid too large");
+        }
+        return (int) size;
+    }
+
+    public Point get(int index) {
+        check(index >= 0 && index < size());
+        double[] point = new double[mValues.size()];
+        int rest = index;
+        for (int i = mValues.size() - 1; i >= 0; i--) {
+            double[] values = mValues.get(i);
+            point[i] = values[rest % values.length];
+            rest /= values.length;
+        }
+        return new Point(this, index, point);
+    }
+
+    @Override public String toString() {
+        return "ParameterGrid{" +
+            "mNames=" + mNames +
+            ", size=" + size() +
+            '}';
+    }
+}
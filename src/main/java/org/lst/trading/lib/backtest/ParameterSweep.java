@@ -0,0 +1,195 @@
+package org.lst.trading.lib.backtest;
+
+import org.lst.trading.lib.model.TradingStrategy;
+import org.lst.trading.lib.series.MultipleDoubleSeries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ToDoubleFunction;
+
+import static org.lst.trading.lib.util.Util.check;
+
+/**
+ * Runs one {@link Backtest} per point of a {@link ParameterGrid} on a work-stealing pool. All runs read the
+ * same sealed price store, and only the summary metrics of each run are kept. Workers advance batches of
+ * points together through a {@link BacktestGroup}, so each batch makes a single pass over the prices.
+ */
+public class ParameterSweep {
+    public static final String LEVERAGE = "leverage";
+
+    public interface StrategyFactory {
+        TradingStrategy create(ParameterGrid.Point point);
+    }
+
+    public static class Run {
+        final ParameterGrid.Point mPoint;
+        final double mPl;
+        final double mReturn;
+        final double mAnnualizedReturn;
+        final double mSharpe;
+        final double mMaxDrawdown;
+        final double mMaxDrawdownPercent;
+        final double mCommissions;
+        final int mOrderCount;
+        final int mDaysCount;
+
+        Run(ParameterGrid.Point point, Backtest.Result result) {
+            mPoint = point;
+            mPl = result.getPl();
+            mReturn = result.getReturn();
+            mAnnualizedReturn = result.getAnnualizedReturn();
+            mSharpe = result.getSharpe();
+            mMaxDrawdown = result.getMaxDrawdown();
+            mMaxDrawdownPercent = result.getMaxDrawdownPercent();
+            mCommissions = result.getCommissions();
+            mOrderCount = result.getOrders().size();
+            mDaysCount = result.getDaysCount();
+        }
+
+        public ParameterGrid.Point getPoint() {
+            return mPoint;
+        }
+
+        public double getPl() {
+            return mPl;
+        }
+
+        public double getReturn() {
+            return mReturn;
+        }
+
+        public double getAnnualizedReturn() {
+            return mAnnualizedReturn;
+        }
+
+        public double getSharpe() {
+            return mSharpe;
+        }
+
+        public double getMaxDrawdown() {
+            return mMaxDrawdown;
+        }
+
+        public double getMaxDrawdownPercent() {
+            return mMaxDrawdownPercent;
+        }
+
+        public double getCommissions() {
+            return mCommissions;
+        }
+
+        public int getOrderCount() {
+            return mOrderCount;
+        }
+
+        public int getDaysCount() {
+            return mDaysCount;
+        }
+
+        @Override public String toString() {
+            return "Run{" +
+                "mPoint=" + mPoint +
+                ", mPl=" + mPl +
+                ", mSharpe=" + mSharpe +
+                ", mMaxDrawdownPercent=" + mMaxDrawdownPercent +
+                ", mOrderCount=" + mOrderCount +
+                '}';
+        }
+    }
+
+    final MultipleDoubleSeries mPriceSeries;
+    final double mDeposit;
+    double mLeverage = 1;
+    int mParallelism = Runtime.getRuntime().availableProcessors();
+    int mBatchSize = 16;
+
+    public ParameterSweep(double deposit, MultipleDoubleSeries priceSeries) {
+        check(priceSeries.isAscending());
+        mDeposit = deposit;
+        // Read-only view of the current rows, so rows appended to priceSeries later can't reach running backtests
+        mPriceSeries = priceSeries.sliceByIndex(0, priceSeries.size());
+    }
+
+    public void setLeverage(double leverage) {
+        mLeverage = leverage;
+    }
+
+    public void setParallelism(int parallelism) {
+        check(parallelism > 0);
+        mParallelism = parallelism;
+    }
+
+    /**
+     * Number of consecutive grid points a worker runs together in one pass over the prices.
+     */
+    public void setBatchSize(int batchSize) {
+        check(batchSize > 0);
+        mBatchSize = batchSize;
+    }
+
+    /**
+     * Runs every point of {@code grid} and returns the runs ranked by {@code score}, best first. A point
+     * with a {@value #LEVERAGE} parameter overrides the sweep's leverage.
+     */
+    public List<Run> run(ParameterGrid grid, StrategyFactory factory, ToDoubleFunction<Run> score) {
+        Run[] runs = new Run[grid.size()];
+        ForkJoinPool pool = new ForkJoinPool(mParallelism);
+        try {
+            pool.invoke(new SweepTask(grid, factory, runs, 0, runs.length));
+        } finally {
+            pool.shutdown();
+        }
+
+        List<Run> ranked = new ArrayList<>(Arrays.asList(runs));
+        ranked.sort(Comparator.comparingDouble((Run run) -> {
+            double value = score.applyAsDouble(run);
+            return Double.isNaN(value) ? Double.NEGATIVE_INFINITY : value;
+        }).reversed());
+        return ranked;
+    }
+
+    void run(ParameterGrid grid, StrategyFactory factory, Run[] runs, int from, int to) {
+        BacktestGroup group = new BacktestGroup(mDeposit, mPriceSeries);
+        ParameterGrid.Point[] points = new ParameterGrid.Point[to - from];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = grid.get(from + i);
+            group.add(factory.create(points[i])).setLeverage(points[i].get(LEVERAGE, mLeverage));
+        }
+
+        List<Backtest.Result> results = group.run();
+        for (int i = 0; i < points.length; i++) {
+            runs[from + i] = new Run(points[i], results.get(i));
+        }
+    }
+
+    private class SweepTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final ParameterGrid mGrid;
+        final StrategyFactory mFactory;
+        final Run[] mRuns;
+        final int mFrom;
+        final int mTo;
+
+        SweepTask(ParameterGrid grid, StrategyFactory factory, Run[] runs, int from, int to) {
+            mGrid = grid;
+            mFactory = factory;
+            mRuns = runs;
+            mFrom = from;
+            mTo = to;
+        }
+
+        @Override protected void compute() {
+            if (mTo - mFrom <= mBatchSize) {
+                run(mGrid, mFactory, mRuns, mFrom, mTo);
+            } else {
+                int mid = (mFrom + mTo) >>> 1;
+                invokeAll(new SweepTask(mGrid, mFactory, mRuns, mFrom, mid), new SweepTask(mGrid, mFactory, mRuns, mid, mTo));
+            }
+        }
+    }
+}
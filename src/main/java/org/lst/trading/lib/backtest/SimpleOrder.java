@@ -11,6 +11,7 @@ import java.time.Instant;
 class SimpleOrder implements Order {
     private int id;
     private String instrument;
+    private int instrumentIndex;
     private Instant openInstant;
     private double openPrice;
     private int amount;
@@ -0,0 +1,277 @@
+package org.lst.trading.lib.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Field parsers working directly on the bytes of a buffer, so fields are parsed without creating a
+ * {@code String} per value. Ranges are absolute buffer indices, {@code from} inclusive and {@code to} exclusive.
+ */
+public final class CsvBytes {
+    // 10^0 .. 10^22 are all exactly representable as doubles
+    private static final double[] POWERS_OF_TEN = new double[23];
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    // Any 18 digit number fits in a long; more could overflow it
+    private static final int MAX_DIGITS = 18;
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private CsvBytes() {
+    }
+
+    public static int indexOf(ByteBuffer buffer, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static int lastIndexOf(ByteBuffer buffer, int from, int to, byte value) {
+        for (int i = to - 1; i >= from; i--) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static String toString(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = from; i < to; i++) {
+            bytes[i - from] = buffer.get(i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses a decimal number, ignoring surrounding blanks and quotes. An empty field is {@code NaN}.
+     * Values with at most 18 significant digits whose mantissa fits in 53 bits and whose decimal exponent is
+     * at most 22 are computed with a single exact multiplication or division, which is correctly rounded;
+     * anything else goes through {@link Double#parseDouble}.
+     */
+    public static double parseDouble(ByteBuffer buffer, int from, int to) {
+        while (from < to && isBlankOrQuote(buffer.get(from))) {
+            from++;
+        }
+        while (to > from && isBlankOrQuote(buffer.get(to - 1))) {
+            to--;
+        }
+        if (from == to) {
+            return Double.NaN;
+        }
+
+        int i = from;
+        boolean negative = false;
+        byte b = buffer.get(i);
+        if (b == '-' || b == '+') {
+            negative = b == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+        boolean exact = true;
+        for (; i < to; i++) {
+            b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                anyDigit = true;
+                if (mantissa == 0 && b == '0') {
+                    continue;
+                }
+                if (digits < MAX_DIGITS) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    digits++;
+                } else {
+                    exact = false;
+                    exponent++;
+                }
+            } else {
+                break;
+            }
+        }
+        if (i < to && buffer.get(i) == '.') {
+            for (i++; i < to; i++) {
+                b = buffer.get(i);
+                if (b >= '0' && b <= '9') {
+                    anyDigit = true;
+                    if (mantissa == 0 && b == '0') {
+                        exponent--;
+                        continue;
+                    }
+                    if (digits < MAX_DIGITS) {
+                        mantissa = mantissa * 10 + (b - '0');
+                        digits++;
+                        exponent--;
+                    } else if (b != '0') {
+                        exact = false;
+                    }
+                } else {
+                    break;
+                }
+            }
+        }
+        if (anyDigit && i < to && (buffer.get(i) == 'e' || buffer.get(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+                negativeExponent = buffer.get(i) == '-';
+                i++;
+            }
+            int value = 0;
+            int start = i;
+            for (; i < to && buffer.get(i) >= '0' && buffer.get(i) <= '9'; i++) {
+                if (value < 100000) {
+                    value = value * 10 + (buffer.get(i) - '0');
+                }
+            }
+            if (i == start) {
+                i = -1; // Dangling exponent, let the fallback report it
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+
+        if (!anyDigit || i != to || !exact || mantissa >= MAX_EXACT_MANTISSA || Math.abs(exponent) >= POWERS_OF_TEN.length) {
+            if (anyDigit && i == to && mantissa == 0) {
+                return negative ? -0.0 : 0.0;
+            }
+            return Double.parseDouble(toString(buffer, from, to));
+        }
+        double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+        return negative ? -value : value;
+    }
+
+    public static long parseLong(ByteBuffer buffer, int from, int to) {
+        while (from < to && isBlankOrQuote(buffer.get(from))) {
+            from++;
+        }
+        while (to > from && isBlankOrQuote(buffer.get(to - 1))) {
+            to--;
+        }
+        int i = from;
+        boolean negative = i < to && buffer.get(i) == '-';
+        if (negative || i < to && buffer.get(i) == '+') {
+            i++;
+        }
+        if (i == to || to - i > 18) {
+            return Long.parseLong(toString(buffer, from, to));
+        }
+        long value = 0;
+        for (; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b < '0' || b > '9') {
+                throw new NumberFormatException("Not a number: " + toString(buffer, from, to));
+            }
+            value = value * 10 + (b - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses an ISO-8601 date or date-time to epoch milliseconds: {@code yyyy-MM-dd}, optionally followed by
+     * {@code T} or a blank and {@code HH:mm[:ss[.fraction]]}, optionally followed by {@code Z} or an offset
+     * {@code +HH:mm}. Values without an offset are taken as UTC.
+     */
+    public static long parseEpochMillis(ByteBuffer buffer, int from, int to) {
+        while (from < to && isBlankOrQuote(buffer.get(from))) {
+            from++;
+        }
+        while (to > from && isBlankOrQuote(buffer.get(to - 1))) {
+            to--;
+        }
+        if (to - from < 10 || buffer.get(from + 4) != '-' || buffer.get(from + 7) != '-') {
+            throw invalidDate(buffer, from, to);
+        }
+        int year = digits(buffer, from, 4, from, to);
+        int month = digits(buffer, from + 5, 2, from, to);
+        int day = digits(buffer, from + 8, 2, from, to);
+        if (month < 1 || month > 12 || day < 1 || day > 31) {
+            throw invalidDate(buffer, from, to);
+        }
+        long millis = epochDay(year, month, day) * 86_400_000L;
+
+        int i = from + 10;
+        if (i < to && (buffer.get(i) == 'T' || buffer.get(i) == ' ')) {
+            if (to - i < 6 || buffer.get(i + 3) != ':') {
+                throw invalidDate(buffer, from, to);
+            }
+            int hour = digits(buffer, i + 1, 2, from, to);
+            int minute = digits(buffer, i + 4, 2, from, to);
+            int second = 0;
+            int fraction = 0;
+            i += 6;
+            if (i < to && buffer.get(i) == ':') {
+                second = digits(buffer, i + 1, 2, from, to);
+                i += 3;
+                if (i < to && buffer.get(i) == '.') {
+                    int scale = 100;
+                    for (i++; i < to && buffer.get(i) >= '0' && buffer.get(i) <= '9'; i++) {
+                        fraction += (buffer.get(i) - '0') * scale;
+                        scale /= 10;
+                    }
+                }
+            }
+            if (hour > 23 || minute > 59 || second > 59) {
+                throw invalidDate(buffer, from, to);
+            }
+            millis += ((hour * 60L + minute) * 60 + second) * 1000 + fraction;
+
+            if (i < to && buffer.get(i) == 'Z') {
+                i++;
+            } else if (i < to && (buffer.get(i) == '+' || buffer.get(i) == '-')) {
+                if (to - i < 6 || buffer.get(i + 3) != ':') {
+                    throw invalidDate(buffer, from, to);
+                }
+                int sign = buffer.get(i) == '-' ? -1 : 1;
+                int offset = digits(buffer, i + 1, 2, from, to) * 60 + digits(buffer, i + 4, 2, from, to);
+                millis -= sign * offset * 60_000L;
+                i += 6;
+            }
+        }
+        if (i != to) {
+            throw invalidDate(buffer, from, to);
+        }
+        return millis;
+    }
+
+    // Days since 1970-01-01 of a proleptic Gregorian date
+    static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int digits(ByteBuffer buffer, int at, int count, int from, int to) {
+        if (at + count > to) {
+            throw invalidDate(buffer, from, to);
+        }
+        int value = 0;
+        for (int i = at; i < at + count; i++) {
+            byte b = buffer.get(i);
+            if (b < '0' || b > '9') {
+                throw invalidDate(buffer, from, to);
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private static boolean isBlankOrQuote(byte b) {
+        return b == ' ' || b == '\t' || b == '"' || b == '\r';
+    }
+
+    private static IllegalArgumentException invalidDate(ByteBuffer buffer, int from, int to) {
+        return new IllegalArgumentException("Invalid date: " + toString(buffer, from, to));
+    }
+}
@@ -0,0 +1,326 @@
+package org.lst.trading.lib.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+/**
+ * Buffered CSV output to a byte channel. Numbers and timestamps are formatted straight into the buffer, so
+ * writing a row creates no intermediate strings, and memory use is bounded by the buffer size regardless of
+ * how many rows are written.
+ */
+public class CsvOutput implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_NUMBER_LENGTH = 32;
+    // Scaled values must fit in a long; 10^0 .. 10^18 are exact both as doubles and longs
+    private static final double MAX_SCALED = 9e18;
+    private static final double TWO_POW_52 = 0x1p52;
+    // Double.toString writes plain decimals in [10^-3, 10^7) and uses an exponent outside of it
+    private static final double MIN_PLAIN = 1e-3;
+    private static final double MAX_PLAIN = 1e7;
+    private static final double[] POWERS_OF_TEN = new double[19];
+    private static final long[] POWERS_OF_TEN_LONG = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        POWERS_OF_TEN_LONG[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+            POWERS_OF_TEN_LONG[i] = POWERS_OF_TEN_LONG[i - 1] * 10;
+        }
+    }
+
+    private final WritableByteChannel mChannel;
+    private final ByteBuffer mBuffer;
+    private final byte mSeparator;
+    private final byte[] mScratch = new byte[MAX_NUMBER_LENGTH];
+    private boolean mRowStarted;
+
+    public CsvOutput(WritableByteChannel channel, char separator) {
+        mChannel = channel;
+        mBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        mSeparator = (byte) separator;
+    }
+
+    public static CsvOutput open(Path path) throws IOException {
+        return new CsvOutput(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), ',');
+    }
+
+    /**
+     * Writes to {@code out}; closing the output closes the stream.
+     */
+    public static CsvOutput of(OutputStream out) {
+        return new CsvOutput(Channels.newChannel(out), ',');
+    }
+
+    public CsvOutput text(CharSequence value) throws IOException {
+        startField();
+        byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > mBuffer.remaining()) {
+            flushBuffer();
+        }
+        if (bytes.length > mBuffer.remaining()) {
+            writeFully(ByteBuffer.wrap(bytes));
+        } else {
+            mBuffer.put(bytes);
+        }
+        return this;
+    }
+
+    /**
+     * Writes {@code null} as an empty field and anything else as its {@code toString()}.
+     */
+    public CsvOutput value(Object value) throws IOException {
+        if (value instanceof Double) {
+            return number((Double) value);
+        }
+        if (value instanceof Long || value instanceof Integer) {
+            return number(((Number) value).longValue());
+        }
+        if (value instanceof Instant) {
+            return instant(((Instant) value).toEpochMilli());
+        }
+        return text(value == null ? "" : value.toString());
+    }
+
+    public CsvOutput number(long value) throws IOException {
+        startField();
+        ensureRemaining(MAX_NUMBER_LENGTH);
+        int length = formatLong(value, mScratch, 0);
+        mBuffer.put(mScratch, 0, length);
+        return this;
+    }
+
+    public CsvOutput number(double value) throws IOException {
+        startField();
+        ensureRemaining(MAX_NUMBER_LENGTH);
+        int length = formatDouble(value, mScratch, 0);
+        if (length < 0) {
+            String s = Double.toString(value);
+            for (int i = 0; i < s.length(); i++) {
+                mBuffer.put((byte) s.charAt(i));
+            }
+        } else {
+            mBuffer.put(mScratch, 0, length);
+        }
+        return this;
+    }
+
+    /**
+     * Writes epoch milliseconds in the format of {@link Instant#toString()}.
+     */
+    public CsvOutput instant(long epochMillis) throws IOException {
+        startField();
+        ensureRemaining(MAX_NUMBER_LENGTH);
+        int length = formatInstant(epochMillis, mScratch, 0);
+        if (length < 0) {
+            String s = Instant.ofEpochMilli(epochMillis).toString();
+            for (int i = 0; i < s.length(); i++) {
+                mBuffer.put((byte) s.charAt(i));
+            }
+        } else {
+            mBuffer.put(mScratch, 0, length);
+        }
+        return this;
+    }
+
+    public CsvOutput endRow() throws IOException {
+        ensureRemaining(1);
+        mBuffer.put((byte) '\n');
+        mRowStarted = false;
+        return this;
+    }
+
+    public void flush() throws IOException {
+        flushBuffer();
+    }
+
+    @Override public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            mChannel.close();
+        }
+    }
+
+    private void startField() throws IOException {
+        if (mRowStarted) {
+            ensureRemaining(1);
+            mBuffer.put(mSeparator);
+        }
+        mRowStarted = true;
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+        if (mBuffer.remaining() < bytes) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        mBuffer.flip();
+        writeFully(mBuffer);
+        mBuffer.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            mChannel.write(buffer);
+        }
+    }
+
+    static int formatLong(long value, byte[] out, int pos) {
+        if (value == Long.MIN_VALUE) {
+            return copy("-9223372036854775808", out, pos);
+        }
+        int start = pos;
+        if (value < 0) {
+            out[pos++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            out[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + digits - start;
+    }
+
+    /**
+     * Formats {@code value} in plain decimal notation with the fewest fraction digits that still parse back to
+     * exactly {@code value}. For each fraction digit count {@code k} the product {@code value * 10^k} is
+     * computed exactly as a high and low part with a fused multiply-add, and the nearest integer is accepted
+     * once it lies strictly inside the rounding interval of {@code value} scaled by {@code 10^k}. Returns -1
+     * for NaN, infinities and magnitudes that {@link Double#toString} writes with an exponent, which is shorter
+     * than plain notation there, so the caller falls back to it.
+     */
+    static int formatDouble(double value, byte[] out, int pos) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return -1;
+        }
+        int start = pos;
+        if (Double.doubleToRawLongBits(value) < 0) {
+            out[pos++] = '-';
+        }
+        double abs = Math.abs(value);
+        if (abs == 0) {
+            out[pos++] = '0';
+            return pos - start;
+        }
+        if (abs < MIN_PLAIN || abs >= MAX_PLAIN) {
+            return -1;
+        }
+
+        // The gap to the next smaller double is half as wide at powers of two, be conservative there
+        double halfUlp = Math.ulp(abs) / 2;
+        if ((Double.doubleToRawLongBits(abs) & 0xFFFFFFFFFFFFFL) == 0) {
+            halfUlp /= 2;
+        }
+        for (int k = 0; k < POWERS_OF_TEN.length; k++) {
+            double scale = POWERS_OF_TEN[k];
+            double hi = abs * scale;
+            if (hi >= MAX_SCALED) {
+                return -1;
+            }
+            double lo = Math.fma(abs, scale, -hi);
+            // Distance from the exact product to the nearest integer m. Both differences below are exact
+            // but the final sum, and rounding is monotonic, so the strict comparison with the exactly
+            // representable half width never accepts m outside the interval.
+            long m;
+            double distance;
+            if (hi >= TWO_POW_52) {
+                double offset = Math.rint(lo);
+                m = (long) hi + (long) offset;
+                distance = Math.abs(lo - offset);
+            } else {
+                double floor = Math.floor(hi);
+                double below = Math.abs((hi - floor) + lo);
+                double above = Math.abs((hi - (floor + 1)) + lo);
+                m = (long) floor + (above < below ? 1 : 0);
+                distance = Math.min(below, above);
+            }
+            if (distance < halfUlp * scale) {
+                long unit = POWERS_OF_TEN_LONG[k];
+                pos += formatLong(m / unit, out, pos);
+                if (k > 0) {
+                    out[pos++] = '.';
+                    long fractionDigits = m % unit;
+                    for (int i = pos + k - 1; i >= pos; i--) {
+                        out[i] = (byte) ('0' + fractionDigits % 10);
+                        fractionDigits /= 10;
+                    }
+                    pos += k;
+                }
+                return pos - start;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Formats like {@link Instant#toString()} for years 0 to 9999, returning -1 outside of that range.
+     */
+    static int formatInstant(long epochMillis, byte[] out, int pos) {
+        long epochDay = Math.floorDiv(epochMillis, 86_400_000L);
+        int millisOfDay = (int) Math.floorMod(epochMillis, 86_400_000L);
+
+        // Inverse of CsvBytes.epochDay
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999) {
+            return -1;
+        }
+
+        int start = pos;
+        pos = digits(year, 4, out, pos);
+        out[pos++] = '-';
+        pos = digits(month, 2, out, pos);
+        out[pos++] = '-';
+        pos = digits(day, 2, out, pos);
+        out[pos++] = 'T';
+        pos = digits(millisOfDay / 3_600_000, 2, out, pos);
+        out[pos++] = ':';
+        pos = digits(millisOfDay / 60_000 % 60, 2, out, pos);
+        out[pos++] = ':';
+        pos = digits(millisOfDay / 1000 % 60, 2, out, pos);
+        if (millisOfDay % 1000 != 0) {
+            out[pos++] = '.';
+            pos = digits(millisOfDay % 1000, 3, out, pos);
+        }
+        out[pos++] = 'Z';
+        return pos - start;
+    }
+
+    private static int digits(long value, int count, byte[] out, int pos) {
+        for (int i = pos + count - 1; i >= pos; i--) {
+            out[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + count;
+    }
+
+    private static int copy(String s, byte[] out, int pos) {
+        for (int i = 0; i < s.length(); i++) {
+            out[pos + i] = (byte) s.charAt(i);
+        }
+        return s.length();
+    }
+}
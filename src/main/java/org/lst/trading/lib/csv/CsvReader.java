@@ -1,10 +1,14 @@
 package org.lst.trading.lib.csv;
 
 import org.lst.trading.lib.model.Bar;
+import org.lst.trading.lib.series.BarSeries;
 import org.lst.trading.lib.series.DoubleSeries;
 import org.lst.trading.lib.series.MultipleDoubleSeries;
 import org.lst.trading.lib.series.TimeSeries;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
@@ -17,6 +21,7 @@ import java.util.function.Function;
 import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.toList;
+import static org.lst.trading.lib.util.Util.check;
 
 public class CsvReader {
     public interface ParseFunction<T> {
@@ -149,6 +154,24 @@ public class CsvReader {
         return series;
     }
 
+    /**
+     * Parses the ISO timestamp column and the named double columns of a file on all cores, sorted ascending.
+     * See {@link ParallelCsvReader}.
+     */
+    public static MultipleDoubleSeries parse(Path file, String sep, String timeColumn, String... columns) throws IOException {
+        check(sep.length() == 1, "Separator must be a single character");
+        return new ParallelCsvReader(sep.charAt(0)).readSeries(file, timeColumn, columns);
+    }
+
+    /**
+     * Parses the ISO timestamp column and the named double columns while reading {@code in}, in stream order.
+     * See {@link StreamingCsvReader}.
+     */
+    public static MultipleDoubleSeries parse(InputStream in, String sep, String timeColumn, String... columns) throws IOException {
+        check(sep.length() == 1, "Separator must be a single character");
+        return new StreamingCsvReader(sep.charAt(0)).readSeries(in, timeColumn, columns);
+    }
+
     public static DoubleSeries parse(Stream<String> lines, String sep, ParseFunction<Instant> instantF, ParseFunction<Double> column) {
         DoubleSeries series = new DoubleSeries(column.getColumn());
         SeriesConsumer<Double> consumer = new SeriesConsumer<>(series, instantF, (parts, columnNames) -> column.parse(parts[columnNames.indexOf(column.getColumn())]));
@@ -175,6 +198,7 @@ public class CsvReader {
                                 private double mLow = low.parse(parts[mColumns.indexOf(low.getColumn())]);
                                 private double mClose = close.parse(parts[mColumns.indexOf(close.getColumn())]);
                                 private long mVolume = volume.parse(parts[mColumns.indexOf(volume.getColumn())]);
+                                private Instant mStart = instant.parse(parts[mColumns.indexOf(instant.getColumn())]);
 
                                 @Override public double getOpen() {
                                     return mOpen;
@@ -197,7 +221,7 @@ public class CsvReader {
                                 }
 
                                 @Override public Instant getStart() {
-                                    return instant.parse(parts[mColumns.indexOf(instant.getColumn())]);
+                                    return mStart;
                                 }
 
                                 @Override public Duration getDuration() {
@@ -213,4 +237,25 @@ public class CsvReader {
                 }
             });
     }
+
+    /**
+     * Parses bars into a {@link BarSeries}, resolving the column positions once from the header.
+     */
+    public static BarSeries parseBars(Stream<String> lines, String sep, ParseFunction<Double> open, ParseFunction<Double> high, ParseFunction<Double> low, ParseFunction<Double> close, ParseFunction<Long> volume, ParseFunction<Instant> instant, Duration duration) {
+        BarSeries bars = new BarSeries(duration);
+        parse(lines, sep, new Consumer<String[]>() {
+            int[] mIndices;
+
+            @Override public void accept(String[] parts) {
+                if (mIndices == null) {
+                    List<String> columns = Stream.of(parts).map(String::trim).collect(toList());
+                    mIndices = Stream.of(open, high, low, close, volume, instant).mapToInt(f -> columns.indexOf(f.getColumn())).toArray();
+                } else {
+                    bars.add(instant.parse(parts[mIndices[5]]).toEpochMilli(), open.parse(parts[mIndices[0]]), high.parse(parts[mIndices[1]]),
+                        low.parse(parts[mIndices[2]]), close.parse(parts[mIndices[3]]), volume.parse(parts[mIndices[4]]));
+                }
+            }
+        });
+        return bars;
+    }
 }
@@ -0,0 +1,207 @@
+package org.lst.trading.lib.csv;
+
+import org.lst.trading.lib.series.BarSeries;
+import org.lst.trading.lib.series.ColumnarStore;
+import org.lst.trading.lib.series.MultipleDoubleSeries;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.lst.trading.lib.util.Util.check;
+
+/**
+ * Reads a delimited file with a header row straight into a {@link ColumnarStore}. The file is memory-mapped
+ * and scanned byte by byte; column positions are resolved once from the header and every field is parsed in
+ * place by {@link CsvBytes}, so no {@code String} is created per line or per value. Files larger than a
+ * single mapping are processed in line-aligned chunks.
+ */
+public class MappedCsvReader {
+    private static final long MAX_CHUNK_SIZE = Integer.MAX_VALUE;
+
+    private final Path mPath;
+    private final byte mSeparator;
+    long mChunkSize = 1L << 30;
+
+    public MappedCsvReader(Path path) {
+        this(path, ',');
+    }
+
+    public MappedCsvReader(Path path, char separator) {
+        check(separator < 128, "Separator must be a single byte");
+        mPath = path;
+        mSeparator = (byte) separator;
+    }
+
+    public List<String> getHeader() throws IOException {
+        try (FileChannel channel = FileChannel.open(mPath, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), mChunkSize));
+            return parseHeader(buffer, headerEnd(buffer), mSeparator);
+        }
+    }
+
+    /**
+     * Reads the timestamp column and the named value columns, in file order. Missing or empty values are
+     * {@code NaN}.
+     */
+    public ColumnarStore read(String timeColumn, String... columns) throws IOException {
+        ColumnarStore store = new ColumnarStore(columns.length);
+        long fileSize = Files.size(mPath);
+        scan(timeColumn, columns, (buffer, from, to, layout) -> {
+            if (store.size() == 0 && to > from) {
+                store.ensureCapacity(estimateRows(buffer, from, to, fileSize));
+            }
+            parseLines(buffer, from, to, mSeparator, layout, store);
+        });
+        return store;
+    }
+
+    /**
+     * Reads OHLCV bars of the given duration from the named columns.
+     */
+    public BarSeries readBars(String timeColumn, String open, String high, String low, String close, String volume, Duration duration) throws IOException {
+        return BarSeries.of(read(timeColumn, open, high, low, close, volume), duration);
+    }
+
+    interface RegionConsumer {
+        void accept(ByteBuffer buffer, int from, int to, Layout layout);
+    }
+
+    /**
+     * Maps the file one chunk at a time and passes the line-aligned data region of each chunk, header
+     * excluded. Mappings stay valid after the channel is closed, so regions may be parsed later.
+     */
+    void scan(String timeColumn, String[] columns, RegionConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(mPath, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long chunkSize = Math.min(mChunkSize, MAX_CHUNK_SIZE);
+
+            Layout layout = null;
+            long position = 0;
+            while (position < fileSize) {
+                long size = Math.min(chunkSize, fileSize - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+                int from = 0;
+                int to = (int) size;
+                if (position + size < fileSize) {
+                    to = CsvBytes.lastIndexOf(buffer, 0, to, (byte) '\n') + 1;
+                    check(to > 0, "Line longer than the chunk size at offset " + position);
+                }
+                if (layout == null) {
+                    int end = headerEnd(buffer);
+                    layout = new Layout(parseHeader(buffer, end, mSeparator), timeColumn, columns);
+                    from = Math.min(end + 1, to);
+                }
+                consumer.accept(buffer, from, to, layout);
+                position += to;
+            }
+        }
+    }
+
+    public MultipleDoubleSeries readSeries(String timeColumn, String... columns) throws IOException {
+        return new MultipleDoubleSeries(Arrays.asList(columns), read(timeColumn, columns));
+    }
+
+    // Maps each field of a line to its target: a column index, TIME, or SKIP
+    static class Layout {
+        static final int SKIP = -1;
+        static final int TIME = -2;
+
+        final int[] mTargets;
+
+        Layout(List<String> header, String timeColumn, String... columns) {
+            mTargets = new int[header.size()];
+            Arrays.fill(mTargets, SKIP);
+            mTargets[indexOf(header, timeColumn)] = TIME;
+            for (int i = 0; i < columns.length; i++) {
+                int field = indexOf(header, columns[i]);
+                check(mTargets[field] == SKIP, "Column " + columns[i] + " requested twice");
+                mTargets[field] = i;
+            }
+        }
+
+        private static int indexOf(List<String> header, String column) {
+            int index = header.indexOf(column);
+            check(index >= 0, "No column " + column + " in " + header);
+            return index;
+        }
+    }
+
+    /**
+     * Appends the lines in {@code [from, to)} to {@code store} in a single pass; blank lines are skipped.
+     */
+    static void parseLines(ByteBuffer buffer, int from, int to, byte separator, Layout layout, ColumnarStore store) {
+        int[] targets = layout.mTargets;
+        int row = -1;
+        int field = 0;
+        boolean hasTime = false;
+        int fieldStart = from;
+        for (int i = from; i <= to; i++) {
+            byte b = i < to ? buffer.get(i) : (byte) '\n';
+            if (b != separator && b != '\n') {
+                continue;
+            }
+            int fieldEnd = b == '\n' && i > fieldStart && buffer.get(i - 1) == '\r' ? i - 1 : i;
+            if (row < 0 && b == '\n' && fieldEnd == fieldStart) {
+                fieldStart = i + 1; // Blank line
+                continue;
+            }
+            if (row < 0) {
+                row = store.addRow(0);
+            }
+            int target = field < targets.length ? targets[field] : Layout.SKIP;
+            if (target == Layout.TIME) {
+                store.setTime(row, CsvBytes.parseEpochMillis(buffer, fieldStart, fieldEnd));
+                hasTime = true;
+            } else if (target >= 0) {
+                store.set(row, target, CsvBytes.parseDouble(buffer, fieldStart, fieldEnd));
+            }
+            field++;
+            fieldStart = i + 1;
+            if (b == '\n') {
+                if (!hasTime) {
+                    throw new IllegalArgumentException("Missing timestamp in row " + row);
+                }
+                row = -1;
+                field = 0;
+                hasTime = false;
+            }
+        }
+    }
+
+    private static int headerEnd(ByteBuffer buffer) {
+        int end = CsvBytes.indexOf(buffer, 0, buffer.limit(), (byte) '\n');
+        return end < 0 ? buffer.limit() : end;
+    }
+
+    static List<String> parseHeader(ByteBuffer buffer, int end, byte separator) {
+        String line = CsvBytes.toString(buffer, 0, end);
+        if (line.startsWith("\uFEFF")) {
+            line = line.substring(1);
+        }
+        List<String> header = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= line.length(); i++) {
+            if (i == line.length() || line.charAt(i) == separator) {
+                header.add(CsvReader.ParseFunction.stripQuotes().apply(line.substring(start, i).trim()));
+                start = i + 1;
+            }
+        }
+        return header;
+    }
+
+    // Row count guess from the length of the first line, to avoid regrowing the store
+    static int estimateRows(ByteBuffer buffer, int from, int to, long bytes) {
+        int end = CsvBytes.indexOf(buffer, from, to, (byte) '\n');
+        int lineLength = Math.max(1, (end < 0 ? to : end) - from + 1);
+        return (int) Math.min(Integer.MAX_VALUE - 8, bytes / lineLength + 1);
+    }
+}
@@ -0,0 +1,149 @@
+package org.lst.trading.lib.csv;
+
+import org.lst.trading.lib.series.BarSeries;
+import org.lst.trading.lib.series.ColumnarStore;
+import org.lst.trading.lib.series.MultipleDoubleSeries;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.lst.trading.lib.util.Util.check;
+
+/**
+ * Multi-threaded front end of {@link MappedCsvReader}. A file is split into newline-aligned pieces that are
+ * parsed concurrently into separate stores, then concatenated and put in timestamp order. A directory of
+ * per-symbol files is loaded one file per task, each file again split into pieces, and the results are
+ * aligned into one multi-instrument store.
+ */
+public class ParallelCsvReader {
+    private static final String EXTENSION = ".csv";
+
+    private final char mSeparator;
+    private int mParallelism = Runtime.getRuntime().availableProcessors();
+    int mMinPieceSize = 1 << 20;
+
+    public ParallelCsvReader() {
+        this(',');
+    }
+
+    public ParallelCsvReader(char separator) {
+        mSeparator = separator;
+    }
+
+    public void setParallelism(int parallelism) {
+        check(parallelism > 0);
+        mParallelism = parallelism;
+    }
+
+    /**
+     * Reads the timestamp column and the named value columns, sorted ascending by timestamp.
+     */
+    public ColumnarStore read(Path file, String timeColumn, String... columns) throws IOException {
+        return invoke(() -> readPieces(file, timeColumn, columns));
+    }
+
+    public MultipleDoubleSeries readSeries(Path file, String timeColumn, String... columns) throws IOException {
+        return new MultipleDoubleSeries(Arrays.asList(columns), read(file, timeColumn, columns));
+    }
+
+    public BarSeries readBars(Path file, String timeColumn, String open, String high, String low, String close, String volume, Duration duration) throws IOException {
+        return BarSeries.of(read(file, timeColumn, open, high, low, close, volume), duration);
+    }
+
+    /**
+     * Reads {@code column} from every {@code .csv} file in {@code directory} into one series per file, named
+     * after the file, aligned on their timestamps.
+     */
+    public MultipleDoubleSeries readDirectory(Path directory, String timeColumn, String column) throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(f -> Files.isRegularFile(f) && f.getFileName().toString().endsWith(EXTENSION))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+        List<String> symbols = new ArrayList<>();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            symbols.add(name.substring(0, name.length() - EXTENSION.length()));
+        }
+
+        ColumnarStore aligned = invoke(() -> {
+            List<ForkJoinTask<ColumnarStore>> tasks = new ArrayList<>();
+            for (Path file : files) {
+                tasks.add(ForkJoinTask.adapt(() -> readPieces(file, timeColumn, column)));
+            }
+            ForkJoinTask.invokeAll(tasks);
+            return ColumnarStore.alignStores(joinAll(tasks));
+        });
+        return new MultipleDoubleSeries(symbols, aligned);
+    }
+
+    // Runs inside the pool, so pieces are forked to its workers
+    private ColumnarStore readPieces(Path file, String timeColumn, String... columns) throws IOException {
+        MappedCsvReader reader = new MappedCsvReader(file, mSeparator);
+        long fileSize = Files.size(file);
+        long pieceSize = Math.max(mMinPieceSize, fileSize / (mParallelism * 4L));
+
+        List<ForkJoinTask<ColumnarStore>> pieces = new ArrayList<>();
+        reader.scan(timeColumn, columns, (buffer, from, to, layout) -> {
+            while (from < to) {
+                int end = to;
+                if (to - from > pieceSize) {
+                    end = CsvBytes.indexOf(buffer, from + (int) pieceSize, to, (byte) '\n') + 1;
+                    if (end == 0) {
+                        end = to;
+                    }
+                }
+                int start = from;
+                int stop = end;
+                pieces.add(ForkJoinTask.adapt(() -> {
+                    ColumnarStore piece = new ColumnarStore(columns.length, MappedCsvReader.estimateRows(buffer, start, stop, stop - start));
+                    MappedCsvReader.parseLines(buffer, start, stop, (byte) mSeparator, layout, piece);
+                    return piece;
+                }).fork());
+                from = end;
+            }
+        });
+        if (pieces.isEmpty()) {
+            return new ColumnarStore(columns.length);
+        }
+        return ColumnarStore.concat(joinAll(pieces)).toAscending();
+    }
+
+    private static List<ColumnarStore> joinAll(List<ForkJoinTask<ColumnarStore>> tasks) {
+        List<ColumnarStore> stores = new ArrayList<>(tasks.size());
+        for (ForkJoinTask<ColumnarStore> task : tasks) {
+            stores.add(task.join());
+        }
+        return stores;
+    }
+
+    private ColumnarStore invoke(Callable<ColumnarStore> callable) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(mParallelism);
+        try {
+            return pool.invoke(ForkJoinTask.adapt(callable));
+        } catch (RuntimeException e) {
+            // Adapted tasks wrap what they throw; surface the original failure
+            Throwable t = e;
+            while (t.getClass() == RuntimeException.class && t.getCause() != null) {
+                t = t.getCause();
+            }
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            }
+            throw t instanceof RuntimeException ? (RuntimeException) t : e;
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
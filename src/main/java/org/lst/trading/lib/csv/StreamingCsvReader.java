@@ -0,0 +1,90 @@
+package org.lst.trading.lib.csv;
+
+import org.lst.trading.lib.series.ColumnarStore;
+import org.lst.trading.lib.series.MultipleDoubleSeries;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.lst.trading.lib.util.Util.check;
+
+/**
+ * Parses CSV from an {@link InputStream} as it arrives, e.g. an HTTP response body. Complete lines are parsed
+ * with the byte-level parser of {@link MappedCsvReader} each time the buffer is filled, so neither the body
+ * nor its lines are ever materialized; memory use is the buffer plus the parsed columns.
+ */
+public class StreamingCsvReader {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final byte mSeparator;
+
+    public StreamingCsvReader() {
+        this(',');
+    }
+
+    public StreamingCsvReader(char separator) {
+        check(separator < 128, "Separator must be a single byte");
+        mSeparator = (byte) separator;
+    }
+
+    /**
+     * Reads the timestamp column and the named value columns, in stream order, until the end of the stream.
+     * The stream is not closed.
+     */
+    public ColumnarStore read(InputStream in, String timeColumn, String... columns) throws IOException {
+        ColumnarStore store = new ColumnarStore(columns.length);
+        byte[] bytes = new byte[BUFFER_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        MappedCsvReader.Layout layout = null;
+        int start = 0;
+        int filled = 0;
+        while (true) {
+            if (filled == bytes.length) {
+                if (start > 0) {
+                    System.arraycopy(bytes, start, bytes, 0, filled - start);
+                    filled -= start;
+                    start = 0;
+                } else {
+                    // A line or header longer than the buffer
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                    buffer = ByteBuffer.wrap(bytes);
+                }
+            }
+            int read = in.read(bytes, filled, bytes.length - filled);
+            if (read < 0) {
+                break;
+            }
+            int scanFrom = filled;
+            filled += read;
+            int end = CsvBytes.lastIndexOf(buffer, scanFrom, filled, (byte) '\n');
+            if (end < 0) {
+                continue;
+            }
+            if (layout == null) {
+                int headerEnd = CsvBytes.indexOf(buffer, start, filled, (byte) '\n');
+                layout = new MappedCsvReader.Layout(MappedCsvReader.parseHeader(buffer, headerEnd, mSeparator), timeColumn, columns);
+                start = headerEnd + 1;
+            }
+            if (start <= end) {
+                MappedCsvReader.parseLines(buffer, start, end + 1, mSeparator, layout, store);
+                start = end + 1;
+            }
+        }
+
+        if (layout == null) {
+            check(filled > 0, "Empty CSV");
+            layout = new MappedCsvReader.Layout(MappedCsvReader.parseHeader(buffer, filled, mSeparator), timeColumn, columns);
+            start = filled;
+        }
+        if (start < filled) {
+            MappedCsvReader.parseLines(buffer, start, filled, mSeparator, layout, store);
+        }
+        return store;
+    }
+
+    public MultipleDoubleSeries readSeries(InputStream in, String timeColumn, String... columns) throws IOException {
+        return new MultipleDoubleSeries(Arrays.asList(columns), read(in, timeColumn, columns));
+    }
+}
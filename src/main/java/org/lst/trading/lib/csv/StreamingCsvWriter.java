@@ -0,0 +1,107 @@
+package org.lst.trading.lib.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Typed counterpart of {@link CsvWriter} that writes rows as they come through a {@link CsvOutput}. Columns
+ * read numbers through primitive accessors, so values are neither boxed nor turned into strings.
+ */
+public class StreamingCsvWriter<T> implements Closeable {
+    public interface Column<T> {
+        String getName();
+
+        void write(T value, CsvOutput out) throws IOException;
+    }
+
+    public static <T> Column<T> doubleColumn(String name, ToDoubleFunction<T> f) {
+        return column(name, (value, out) -> out.number(f.applyAsDouble(value)));
+    }
+
+    public static <T> Column<T> longColumn(String name, ToLongFunction<T> f) {
+        return column(name, (value, out) -> out.number(f.applyAsLong(value)));
+    }
+
+    public static <T> Column<T> instantColumn(String name, Function<T, Instant> f) {
+        return column(name, (value, out) -> {
+            Instant instant = f.apply(value);
+            if (instant == null) {
+                out.text("");
+            } else {
+                out.instant(instant.toEpochMilli());
+            }
+        });
+    }
+
+    public static <T> Column<T> textColumn(String name, Function<T, Object> f) {
+        return column(name, (value, out) -> out.value(f.apply(value)));
+    }
+
+    private interface FieldWriter<T> {
+        void write(T value, CsvOutput out) throws IOException;
+    }
+
+    private static <T> Column<T> column(String name, FieldWriter<T> writer) {
+        return new Column<T>() {
+            @Override public String getName() {
+                return name;
+            }
+
+            @Override public void write(T value, CsvOutput out) throws IOException {
+                writer.write(value, out);
+            }
+        };
+    }
+
+    private final CsvOutput mOut;
+    private final List<Column<T>> mColumns;
+
+    public StreamingCsvWriter(CsvOutput out, List<Column<T>> columns) throws IOException {
+        mOut = out;
+        mColumns = columns;
+        for (Column<T> column : columns) {
+            out.text(column.getName());
+        }
+        out.endRow();
+    }
+
+    public static <T> StreamingCsvWriter<T> open(Path path, List<Column<T>> columns) throws IOException {
+        return new StreamingCsvWriter<>(CsvOutput.open(path), columns);
+    }
+
+    public static <T> StreamingCsvWriter<T> of(OutputStream out, List<Column<T>> columns) throws IOException {
+        return new StreamingCsvWriter<>(CsvOutput.of(out), columns);
+    }
+
+    public void write(T value) throws IOException {
+        for (Column<T> column : mColumns) {
+            column.write(value, mOut);
+        }
+        mOut.endRow();
+    }
+
+    public void writeAll(Iterable<? extends T> values) throws IOException {
+        for (T value : values) {
+            write(value);
+        }
+    }
+
+    public void writeAll(Stream<? extends T> values) throws IOException {
+        for (Iterator<? extends T> it = values.iterator(); it.hasNext(); ) {
+            write(it.next());
+        }
+    }
+
+    @Override public void close() throws IOException {
+        mOut.close();
+    }
+}
@@ -3,6 +3,7 @@ package org.lst.trading.lib.model;
 import org.lst.trading.lib.series.TimeSeries;
 
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -13,6 +14,22 @@ public interface TradingContext {
 
     Stream<TimeSeries.Entry<Double>> getHistory(String instrument);
 
+    /**
+     * Up to {@code n} past prices of {@code instrument}, newest first, in a new array.
+     */
+    default double[] getHistory(String instrument, int n) {
+        double[] values = new double[Math.max(n, 0)];
+        int count = getHistory(instrument, values, n);
+        return count == values.length ? values : Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Copies up to {@code n} past prices of {@code instrument} into {@code target}, newest first, and returns how
+     * many were copied. {@code n} may not exceed the strategy's {@link TradingStrategy#getMaxLookback()}; a
+     * strategy reading every tick passes the same array each time, so the lookup allocates nothing.
+     */
+    int getHistory(String instrument, double[] target, int n);
+
     Order order(String instrument, boolean buy, int amount);
 
     ClosedOrder close(Order order);
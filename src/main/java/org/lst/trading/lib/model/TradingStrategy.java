@@ -1,6 +1,13 @@
 package org.lst.trading.lib.model;
 
 public interface TradingStrategy {
+    /**
+     * Number of past values per instrument the strategy reads through {@link TradingContext#getHistory(String, double[], int)}.
+     */
+    default int getMaxLookback() {
+        return 0;
+    }
+
     default void onStart(TradingContext context) {
 
     }
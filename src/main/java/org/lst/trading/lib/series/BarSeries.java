@@ -0,0 +1,270 @@
+package org.lst.trading.lib.series;
+
+import org.lst.trading.lib.model.Bar;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static org.lst.trading.lib.util.Util.check;
+
+/**
+ * OHLCV bars of a fixed duration stored column-wise in primitive arrays, with bar starts as epoch
+ * milliseconds. Bars are read by index or through a {@link Cursor}, a reusable {@link Bar} view that is
+ * repositioned instead of allocating a bar per row.
+ */
+public class BarSeries implements Iterable<Bar> {
+    public static final int OPEN = 0;
+    public static final int HIGH = 1;
+    public static final int LOW = 2;
+    public static final int CLOSE = 3;
+    public static final int VOLUME = 4;
+
+    final Duration mDuration;
+    long[] mStart;
+    double[] mOpen;
+    double[] mHigh;
+    double[] mLow;
+    double[] mClose;
+    long[] mVolume;
+    int mSize;
+
+    public BarSeries(Duration duration) {
+        this(duration, 16);
+    }
+
+    public BarSeries(Duration duration, int capacity) {
+        capacity = Math.max(capacity, 1);
+        mDuration = duration;
+        mStart = new long[capacity];
+        mOpen = new double[capacity];
+        mHigh = new double[capacity];
+        mLow = new double[capacity];
+        mClose = new double[capacity];
+        mVolume = new long[capacity];
+    }
+
+    /**
+     * Copies a store whose columns are open, high, low, close and volume, in that order.
+     */
+    public static BarSeries of(ColumnarStore store, Duration duration) {
+        check(store.getColumnCount() == 5);
+        BarSeries bars = new BarSeries(duration, store.size());
+        int size = store.size();
+        int offset = store.mOffset;
+        System.arraycopy(store.mTimes, offset, bars.mStart, 0, size);
+        System.arraycopy(store.column(OPEN), offset, bars.mOpen, 0, size);
+        System.arraycopy(store.column(HIGH), offset, bars.mHigh, 0, size);
+        System.arraycopy(store.column(LOW), offset, bars.mLow, 0, size);
+        System.arraycopy(store.column(CLOSE), offset, bars.mClose, 0, size);
+        double[] volume = store.column(VOLUME);
+        for (int i = 0; i < size; i++) {
+            double value = volume[offset + i];
+            bars.mVolume[i] = Double.isNaN(value) ? 0 : (long) value;
+        }
+        bars.mSize = size;
+        return bars;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public Duration getDuration() {
+        return mDuration;
+    }
+
+    public int add(long start, double open, double high, double low, double close, long volume) {
+        ensureCapacity(mSize + 1);
+        mStart[mSize] = start;
+        mOpen[mSize] = open;
+        mHigh[mSize] = high;
+        mLow[mSize] = low;
+        mClose[mSize] = close;
+        mVolume[mSize] = volume;
+        return mSize++;
+    }
+
+    public int add(Bar bar) {
+        return add(bar.getStart().toEpochMilli(), bar.getOpen(), bar.getHigh(), bar.getLow(), bar.getClose(), bar.getVolume());
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > mStart.length) {
+            int newCapacity = Math.max(capacity, mStart.length + (mStart.length >> 1));
+            mStart = Arrays.copyOf(mStart, newCapacity);
+            mOpen = Arrays.copyOf(mOpen, newCapacity);
+            mHigh = Arrays.copyOf(mHigh, newCapacity);
+            mLow = Arrays.copyOf(mLow, newCapacity);
+            mClose = Arrays.copyOf(mClose, newCapacity);
+            mVolume = Arrays.copyOf(mVolume, newCapacity);
+        }
+    }
+
+    public long getStartMillis(int i) {
+        return mStart[i];
+    }
+
+    public Instant getStart(int i) {
+        return Instant.ofEpochMilli(mStart[i]);
+    }
+
+    public double getOpen(int i) {
+        return mOpen[i];
+    }
+
+    public double getHigh(int i) {
+        return mHigh[i];
+    }
+
+    public double getLow(int i) {
+        return mLow[i];
+    }
+
+    public double getClose(int i) {
+        return mClose[i];
+    }
+
+    public long getVolume(int i) {
+        return mVolume[i];
+    }
+
+    public boolean isAscending() {
+        for (int i = 1; i < mSize; i++) {
+            if (mStart[i - 1] >= mStart[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies the bars into a store with the columns open, high, low, close and volume, e.g. to backtest on
+     * closing prices through a {@link MultipleDoubleSeries} view.
+     */
+    public ColumnarStore toStore() {
+        ColumnarStore store = new ColumnarStore(5, mSize);
+        System.arraycopy(mStart, 0, store.mTimes, 0, mSize);
+        System.arraycopy(mOpen, 0, store.mColumns[OPEN], 0, mSize);
+        System.arraycopy(mHigh, 0, store.mColumns[HIGH], 0, mSize);
+        System.arraycopy(mLow, 0, store.mColumns[LOW], 0, mSize);
+        System.arraycopy(mClose, 0, store.mColumns[CLOSE], 0, mSize);
+        for (int i = 0; i < mSize; i++) {
+            store.mColumns[VOLUME][i] = mVolume[i];
+        }
+        store.mSize = mSize;
+        return store;
+    }
+
+    /**
+     * A cursor positioned before the first bar.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Iterates with a single {@link Cursor}, so each returned bar is only valid until the next call to
+     * {@code next()}.
+     */
+    @Override public Iterator<Bar> iterator() {
+        Cursor cursor = cursor();
+        return new Iterator<Bar>() {
+            @Override public boolean hasNext() {
+                return cursor.mIndex + 1 < mSize;
+            }
+
+            @Override public Bar next() {
+                if (!cursor.next()) {
+                    throw new NoSuchElementException();
+                }
+                return cursor;
+            }
+        };
+    }
+
+    /**
+     * Flyweight {@link Bar} over one row of the series. {@link #getStartMillis()} reads the start without
+     * creating an {@link Instant}.
+     */
+    public class Cursor implements Bar {
+        int mIndex = -1;
+
+        public boolean next() {
+            if (mIndex + 1 >= mSize) {
+                return false;
+            }
+            mIndex++;
+            return true;
+        }
+
+        public Cursor moveTo(int index) {
+            check(index >= 0 && index < mSize);
+            mIndex = index;
+            return this;
+        }
+
+        public int getIndex() {
+            return mIndex;
+        }
+
+        public long getStartMillis() {
+            return mStart[mIndex];
+        }
+
+        @Override public double getOpen() {
+            return mOpen[mIndex];
+        }
+
+        @Override public double getHigh() {
+            return mHigh[mIndex];
+        }
+
+        @Override public double getLow() {
+            return mLow[mIndex];
+        }
+
+        @Override public double getClose() {
+            return mClose[mIndex];
+        }
+
+        @Override public long getVolume() {
+            return mVolume[mIndex];
+        }
+
+        @Override public Instant getStart() {
+            return Instant.ofEpochMilli(mStart[mIndex]);
+        }
+
+        @Override public Duration getDuration() {
+            return mDuration;
+        }
+
+        /**
+         * Typical price {@code (high + low + close) / 3}, as bars carry no trade-level data.
+         */
+        @Override public double getWAP() {
+            return (mHigh[mIndex] + mLow[mIndex] + mClose[mIndex]) / 3;
+        }
+
+        @Override public String toString() {
+            return "Bar{" +
+                "start=" + getStart() +
+                ", open=" + getOpen() +
+                ", high=" + getHigh() +
+                ", low=" + getLow() +
+                ", close=" + getClose() +
+                ", volume=" + getVolume() +
+                '}';
+        }
+    }
+
+    @Override public String toString() {
+        return "BarSeries{" +
+            "duration=" + mDuration +
+            ", size=" + mSize +
+            '}';
+    }
+}
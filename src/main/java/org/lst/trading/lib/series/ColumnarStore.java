@@ -0,0 +1,415 @@
+package org.lst.trading.lib.series;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.lst.trading.lib.util.Util.check;
+
+/**
+ * Column oriented storage for a multi-instrument price matrix: one {@code long[]} of epoch millisecond
+ * timestamps and one {@code double[]} per column. Missing values are stored as {@code NaN}, so every
+ * column doubles as its own presence mask.
+ * <p>
+ * {@link #slice} returns a read-only view of a range of rows that shares the arrays; row {@code r} of a view
+ * is at index {@code mOffset + r} of them.
+ */
+public class ColumnarStore {
+    long[] mTimes;
+    double[][] mColumns;
+    int mOffset;
+    int mSize;
+    boolean mSealed;
+
+    public ColumnarStore(int columnCount) {
+        this(columnCount, 16);
+    }
+
+    public ColumnarStore(int columnCount, int capacity) {
+        check(columnCount >= 0);
+        capacity = Math.max(capacity, 1);
+        mTimes = new long[capacity];
+        mColumns = new double[columnCount][capacity];
+    }
+
+    ColumnarStore(long[] times, double[][] columns, int size) {
+        this(times, columns, 0, size);
+    }
+
+    ColumnarStore(long[] times, double[][] columns, int offset, int size) {
+        mTimes = times;
+        mColumns = columns;
+        mOffset = offset;
+        mSize = size;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public int getColumnCount() {
+        return mColumns.length;
+    }
+
+    public long getTime(int row) {
+        return mTimes[mOffset + row];
+    }
+
+    public void setTime(int row, long time) {
+        checkWritable();
+        mTimes[mOffset + row] = time;
+    }
+
+    public Instant getInstant(int row) {
+        return Instant.ofEpochMilli(getTime(row));
+    }
+
+    public double get(int row, int column) {
+        return mColumns[column][mOffset + row];
+    }
+
+    public void set(int row, int column, double value) {
+        checkWritable();
+        mColumns[column][mOffset + row] = value;
+    }
+
+    public boolean isPresent(int row, int column) {
+        return !Double.isNaN(mColumns[column][mOffset + row]);
+    }
+
+    public boolean isComplete(int row) {
+        for (int c = 0; c < mColumns.length; c++) {
+            if (!isPresent(row, c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Array of a column for bulk access, row r at mOffset + r; subclasses that don't keep columns on the heap
+    // materialize it here
+    double[] column(int column) {
+        return mColumns[column];
+    }
+
+    /**
+     * Backing array of a column, valid for indices {@code [0, size())}. The array is replaced when the store
+     * grows, so callers should not hold on to it across appends. A {@link MappedColumnarStore} copies the
+     * column to the heap on first use, and a slice returns a copy of its rows.
+     */
+    public double[] getColumnArray(int column) {
+        return mOffset == 0 ? column(column) : copyColumn(column);
+    }
+
+    public long[] getTimeArray() {
+        return mOffset == 0 ? mTimes : Arrays.copyOfRange(mTimes, mOffset, mOffset + mSize);
+    }
+
+    public double[] copyColumn(int column) {
+        return Arrays.copyOfRange(column(column), mOffset, mOffset + mSize);
+    }
+
+    /**
+     * Read-only view of the rows {@code [from, to)} that shares this store's arrays, so taking many windows of
+     * a long history copies nothing. Values set in this store later are visible in the view.
+     */
+    public ColumnarStore slice(int from, int to) {
+        check(from >= 0 && from <= to && to <= mSize);
+        return view(mOffset + from, to - from).seal();
+    }
+
+    ColumnarStore view(int offset, int size) {
+        return new ColumnarStore(mTimes, mColumns, offset, size);
+    }
+
+    /**
+     * Row of the first timestamp not before {@code time} in an ascending store, or {@link #size()} if there is
+     * none.
+     */
+    public int lowerBound(long time) {
+        int low = 0;
+        int high = mSize;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mTimes[mOffset + mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Appends a row with every column missing and returns its index.
+     */
+    public int addRow(long time) {
+        checkWritable();
+        ensureCapacity(mSize + 1);
+        mTimes[mSize] = time;
+        for (double[] column : mColumns) {
+            column[mSize] = Double.NaN;
+        }
+        return mSize++;
+    }
+
+    public int addRow(Instant instant, List<Double> values) {
+        check(values.size() == mColumns.length);
+        int row = addRow(instant.toEpochMilli());
+        int i = 0;
+        for (Double value : values) {
+            mColumns[i++][row] = value == null ? Double.NaN : value;
+        }
+        return row;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > mTimes.length) {
+            checkWritable();
+            int newCapacity = Math.max(capacity, mTimes.length + (mTimes.length >> 1));
+            mTimes = Arrays.copyOf(mTimes, newCapacity);
+            for (int i = 0; i < mColumns.length; i++) {
+                mColumns[i] = Arrays.copyOf(mColumns[i], newCapacity);
+            }
+        }
+    }
+
+    /**
+     * Makes the store read-only so it can be shared between threads, e.g. by concurrent backtests.
+     */
+    public ColumnarStore seal() {
+        mSealed = true;
+        return this;
+    }
+
+    public boolean isSealed() {
+        return mSealed;
+    }
+
+    void checkWritable() {
+        check(!mSealed, "Store is sealed");
+    }
+
+    public boolean isAscending() {
+        for (int i = mOffset + 1; i < mOffset + mSize; i++) {
+            if (mTimes[i - 1] >= mTimes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Inner join on the timestamps of this store and {@code series}, appending the series as a new column.
+     */
+    public ColumnarStore join(DoubleSeries series) {
+        int columns = mColumns.length;
+        ColumnarStore joined = new ColumnarStore(columns + 1, Math.min(mSize, series.size()));
+        int i = 0;
+        int j = 0;
+        while (i < mSize && j < series.size()) {
+            long time = series.getTime(j);
+            if (getTime(i) < time) {
+                i++;
+            } else if (time < getTime(i)) {
+                j++;
+            } else {
+                int row = joined.addRow(time);
+                for (int c = 0; c < columns; c++) {
+                    joined.mColumns[c][row] = column(c)[mOffset + i];
+                }
+                joined.mColumns[columns][row] = series.getValue(j);
+                i++;
+                j++;
+            }
+        }
+        return joined;
+    }
+
+    /**
+     * Outer join of ascending series on their timestamps. Values a series has no entry for are left missing.
+     */
+    public static ColumnarStore align(List<DoubleSeries> series) {
+        int columns = series.size();
+        int[] positions = new int[columns];
+        int capacity = 0;
+        for (DoubleSeries s : series) {
+            check(s.isAscending());
+            capacity = Math.max(capacity, s.size());
+        }
+
+        ColumnarStore store = new ColumnarStore(columns, capacity);
+        while (true) {
+            long time = Long.MAX_VALUE;
+            for (int c = 0; c < columns; c++) {
+                if (positions[c] < series.get(c).size()) {
+                    time = Math.min(time, series.get(c).getTime(positions[c]));
+                }
+            }
+            if (time == Long.MAX_VALUE) {
+                return store;
+            }
+
+            int row = store.addRow(time);
+            for (int c = 0; c < columns; c++) {
+                DoubleSeries s = series.get(c);
+                if (positions[c] < s.size() && s.getTime(positions[c]) == time) {
+                    store.mColumns[c][row] = s.getValue(positions[c]++);
+                }
+            }
+        }
+    }
+
+    /**
+     * Outer join of ascending stores on their timestamps; the columns of the result are the columns of each
+     * store in turn.
+     */
+    public static ColumnarStore alignStores(List<ColumnarStore> stores) {
+        int[] positions = new int[stores.size()];
+        int[] offsets = new int[stores.size()];
+        int columns = 0;
+        int capacity = 0;
+        for (int s = 0; s < stores.size(); s++) {
+            ColumnarStore store = stores.get(s);
+            check(store.isAscending());
+            offsets[s] = columns;
+            columns += store.getColumnCount();
+            capacity = Math.max(capacity, store.size());
+        }
+
+        ColumnarStore aligned = new ColumnarStore(columns, capacity);
+        while (true) {
+            long time = Long.MAX_VALUE;
+            for (int s = 0; s < stores.size(); s++) {
+                if (positions[s] < stores.get(s).mSize) {
+                    time = Math.min(time, stores.get(s).getTime(positions[s]));
+                }
+            }
+            if (time == Long.MAX_VALUE) {
+                return aligned;
+            }
+
+            int row = aligned.addRow(time);
+            for (int s = 0; s < stores.size(); s++) {
+                ColumnarStore store = stores.get(s);
+                int position = positions[s];
+                if (position < store.mSize && store.getTime(position) == time) {
+                    for (int c = 0; c < store.mColumns.length; c++) {
+                        aligned.mColumns[offsets[s] + c][row] = store.column(c)[store.mOffset + position];
+                    }
+                    positions[s]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends the rows of {@code parts} one after another; all parts must have the same columns.
+     */
+    public static ColumnarStore concat(List<ColumnarStore> parts) {
+        check(!parts.isEmpty());
+        int columns = parts.get(0).getColumnCount();
+        int size = 0;
+        for (ColumnarStore part : parts) {
+            check(part.getColumnCount() == columns);
+            size += part.mSize;
+        }
+
+        ColumnarStore store = new ColumnarStore(columns, size);
+        for (ColumnarStore part : parts) {
+            System.arraycopy(part.mTimes, part.mOffset, store.mTimes, store.mSize, part.mSize);
+            for (int c = 0; c < columns; c++) {
+                System.arraycopy(part.column(c), part.mOffset, store.mColumns[c], store.mSize, part.mSize);
+            }
+            store.mSize += part.mSize;
+        }
+        return store;
+    }
+
+    /**
+     * This store if it is already ascending, otherwise a copy with the rows stably sorted by timestamp.
+     */
+    public ColumnarStore toAscending() {
+        if (isAscending()) {
+            return this;
+        }
+
+        int[] order = new int[mSize];
+        boolean descending = true;
+        for (int row = 1; row < mSize && descending; row++) {
+            descending = getTime(row) < getTime(row - 1);
+        }
+        if (descending) {
+            for (int row = 0; row < mSize; row++) {
+                order[row] = mSize - 1 - row;
+            }
+        } else {
+            Integer[] boxed = new Integer[mSize];
+            for (int row = 0; row < mSize; row++) {
+                boxed[row] = row;
+            }
+            Arrays.sort(boxed, (a, b) -> Long.compare(getTime(a), getTime(b)));
+            for (int row = 0; row < mSize; row++) {
+                order[row] = boxed[row];
+            }
+        }
+
+        ColumnarStore sorted = new ColumnarStore(mColumns.length, mSize);
+        for (int row = 0; row < mSize; row++) {
+            sorted.mTimes[row] = getTime(order[row]);
+            for (int c = 0; c < mColumns.length; c++) {
+                sorted.mColumns[c][row] = column(c)[mOffset + order[row]];
+            }
+        }
+        sorted.mSize = mSize;
+        return sorted;
+    }
+
+    /**
+     * Copies the rows where all of {@code columns} are present into a new store with just those columns.
+     */
+    public ColumnarStore selectComplete(int... columns) {
+        int count = 0;
+        for (int row = 0; row < mSize; row++) {
+            if (isPresent(row, columns)) {
+                count++;
+            }
+        }
+
+        ColumnarStore store = new ColumnarStore(columns.length, count);
+        for (int row = 0; row < mSize; row++) {
+            if (isPresent(row, columns)) {
+                int target = store.addRow(getTime(row));
+                for (int c = 0; c < columns.length; c++) {
+                    store.mColumns[c][target] = column(columns[c])[mOffset + row];
+                }
+            }
+        }
+        return store;
+    }
+
+    private boolean isPresent(int row, int[] columns) {
+        for (int column : columns) {
+            if (!isPresent(row, column)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static ColumnarStore of(DoubleSeries series) {
+        int size = series.size();
+        ColumnarStore store = new ColumnarStore(1, size);
+        System.arraycopy(series.mIndex.mTimes, series.mIndex.mOffset, store.mTimes, 0, size);
+        System.arraycopy(series.mValues, series.mOffset, store.mColumns[0], 0, size);
+        store.mSize = size;
+        return store;
+    }
+
+    @Override public String toString() {
+        return "ColumnarStore{" +
+            "columns=" + mColumns.length +
+            ", size=" + mSize +
+            '}';
+    }
+}
@@ -0,0 +1,76 @@
+package org.lst.trading.lib.series;
+
+import static org.lst.trading.lib.util.Util.check;
+
+/**
+ * Fixed capacity window over the most recent values of a stream of doubles. Adding a value overwrites the
+ * oldest one once the buffer is full, and reads are indexed by lag with {@code 0} being the newest value.
+ */
+public class DoubleRingBuffer {
+    final double[] mValues;
+    int mHead;
+    int mSize;
+
+    public DoubleRingBuffer(int capacity) {
+        check(capacity > 0);
+        mValues = new double[capacity];
+    }
+
+    public int getCapacity() {
+        return mValues.length;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isFull() {
+        return mSize == mValues.length;
+    }
+
+    public void add(double value) {
+        mValues[mHead] = value;
+        mHead = mHead + 1 == mValues.length ? 0 : mHead + 1;
+        if (mSize < mValues.length) {
+            mSize++;
+        }
+    }
+
+    public double get(int lag) {
+        check(lag >= 0 && lag < mSize);
+        int index = mHead - 1 - lag;
+        return mValues[index < 0 ? index + mValues.length : index];
+    }
+
+    /**
+     * Copies up to {@code n} of the most recent values into {@code target}, newest first, and returns how many
+     * were copied.
+     */
+    public int copyTo(double[] target, int n) {
+        int count = Math.min(Math.min(n, mSize), target.length);
+        int index = mHead;
+        for (int i = 0; i < count; i++) {
+            index = index == 0 ? mValues.length - 1 : index - 1;
+            target[i] = mValues[index];
+        }
+        return count;
+    }
+
+    public double[] toArray(int n) {
+        double[] values = new double[Math.min(n, mSize)];
+        copyTo(values, values.length);
+        return values;
+    }
+
+    public void clear() {
+        mHead = 0;
+        mSize = 0;
+    }
+
+    @Override public String toString() {
+        return "DoubleRingBuffer{" +
+            "capacity=" + mValues.length +
+            ", size=" + mSize +
+            '}';
+    }
+}
@@ -1,19 +1,70 @@
 package org.lst.trading.lib.series;
 
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
 
+import static org.lst.trading.lib.util.Util.check;
+
+/**
+ * Series of doubles stored in a {@code double[]} over a {@link TimeIndex}, with timestamps in epoch
+ * milliseconds. Entries are created on access; a {@code null} item is stored as {@code NaN}.
+ * <p>
+ * Arithmetic between series on the same index runs as a loop over the arrays and the result shares the
+ * index. Series on different, strictly ascending timestamps are inner joined on their {@code long} times;
+ * only anything else falls back to {@link TimeSeries#merge}.
+ * <p>
+ * {@link #sliceByIndex}, {@link #tail} and {@link #lag} return views that share the arrays of this series.
+ * Values are never modified in place, and a view that is appended to copies its range first.
+ */
 public class DoubleSeries extends TimeSeries<Double> {
     String mName;
+    TimeIndex mIndex;
+    double[] mValues;
+    int mOffset;
+    boolean mSharedValues;
 
     public DoubleSeries(List<Entry<Double>> data, String name) {
-        super(data);
-        mName = name;
+        this(name, data.size());
+        for (Entry<Double> entry : data) {
+            append(entry.mTime, entry.getItem());
+        }
     }
 
     public DoubleSeries(String name) {
-        super();
+        this(name, 16);
+    }
+
+    private DoubleSeries(String name, int capacity) {
+        this(new TimeIndex(capacity), new double[Math.max(capacity, 1)], 0, false, name);
+    }
+
+    /**
+     * Series over {@code index}, which it shares, with the values in the first {@code index.size()} entries
+     * of {@code values}, which it takes ownership of. The index is marked shared, so appending to any series
+     * over it copies it first.
+     */
+    public DoubleSeries(TimeIndex index, double[] values, String name) {
+        this(index.share(), values, 0, false, name);
+    }
+
+    private DoubleSeries(TimeIndex index, double[] values, int offset, boolean sharedValues, String name) {
+        super(null);
+        check(offset >= 0 && offset + index.size() <= values.length);
+        mIndex = index;
+        mValues = values;
+        mOffset = offset;
+        mSharedValues = sharedValues;
         mName = name;
+        mData = new EntryList();
+    }
+
+    private DoubleSeries view(TimeIndex index, int offset) {
+        return new DoubleSeries(index, mValues, mOffset + offset, true, mName);
     }
 
     public String getName() {
@@ -24,73 +75,236 @@ public class DoubleSeries extends TimeSeries<Double> {
         mName = name;
     }
 
+    public TimeIndex getTimeIndex() {
+        return mIndex.share();
+    }
+
+    public long getTime(int i) {
+        return mIndex.get(i);
+    }
+
+    public double getValue(int i) {
+        return mValues[mOffset + i];
+    }
+
+    @Override public int size() {
+        return mIndex.mSize;
+    }
+
+    public void add(double value, long time) {
+        append(time, value);
+    }
+
+    private void append(long time, Double value) {
+        int size = size();
+        if (mIndex.mShared) {
+            mIndex = mIndex.copy(size + 1);
+        }
+        if (mSharedValues) {
+            mValues = Arrays.copyOfRange(mValues, mOffset, mOffset + size + 1);
+            mOffset = 0;
+            mSharedValues = false;
+        } else if (mOffset + size == mValues.length) {
+            mValues = Arrays.copyOf(mValues, mValues.length + (mValues.length >> 1) + 1);
+        }
+        mIndex.add(time);
+        mValues[mOffset + size] = value == null ? Double.NaN : value;
+    }
+
+    /**
+     * Applies {@code f} to the values at equal timestamps of both series.
+     */
+    public DoubleSeries combine(DoubleSeries other, DoubleBinaryOperator f) {
+        check(isAscending());
+        check(other.isAscending());
+        if (mIndex.isSameAs(other.mIndex)) {
+            int size = size();
+            double[] values = new double[size];
+            double[] a = mValues;
+            double[] b = other.mValues;
+            int offsetA = mOffset;
+            int offsetB = other.mOffset;
+            for (int i = 0; i < size; i++) {
+                values[i] = f.applyAsDouble(a[offsetA + i], b[offsetB + i]);
+            }
+            return new DoubleSeries(mIndex.share(), values, mName);
+        }
+        if (mIndex.isStrictlyAscending() && other.mIndex.isStrictlyAscending()) {
+            return join(other, f);
+        }
+        return new DoubleSeries(TimeSeries.merge(this, other, f::applyAsDouble).mData, mName);
+    }
+
+    private DoubleSeries join(DoubleSeries other, DoubleBinaryOperator f) {
+        TimeIndex t1 = mIndex;
+        TimeIndex t2 = other.mIndex;
+        int n1 = size();
+        int n2 = other.size();
+        int capacity = Math.min(n1, n2);
+        long[] times = new long[capacity];
+        double[] values = new double[capacity];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < n1 && j < n2) {
+            long time1 = t1.get(i);
+            long time2 = t2.get(j);
+            if (time1 < time2) {
+                i++;
+            } else if (time2 < time1) {
+                j++;
+            } else {
+                times[size] = time1;
+                values[size++] = f.applyAsDouble(getValue(i++), other.getValue(j++));
+            }
+        }
+        return new DoubleSeries(new TimeIndex(times, size), values, mName);
+    }
+
+    /**
+     * Applies {@code f} to every value; the result shares the index.
+     */
+    public DoubleSeries mapValues(DoubleUnaryOperator f) {
+        int size = size();
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = f.applyAsDouble(mValues[mOffset + i]);
+        }
+        return new DoubleSeries(mIndex.share(), values, mName);
+    }
+
     public DoubleSeries merge(DoubleSeries other, MergeFunction<Double, Double> f) {
-        return new DoubleSeries(DoubleSeries.merge(this, other, f).mData, mName);
+        return combine(other, f::merge);
     }
 
     public DoubleSeries mapToDouble(Function<Double, Double> f) {
-        return new DoubleSeries(map(f).mData, mName);
+        return mapValues(f::apply);
     }
 
     public DoubleSeries plus(DoubleSeries other) {
-        return merge(other, (x, y) -> x + y);
+        return combine(other, (x, y) -> x + y);
     }
 
     public DoubleSeries plus(double other) {
-        return mapToDouble(x -> x + other);
+        return mapValues(x -> x + other);
     }
 
     public DoubleSeries mul(DoubleSeries other) {
-        return merge(other, (x, y) -> x * y);
+        return combine(other, (x, y) -> x * y);
     }
 
     public DoubleSeries mul(double factor) {
-        return mapToDouble(x -> x * factor);
+        return mapValues(x -> x * factor);
     }
 
     public DoubleSeries div(DoubleSeries other) {
-        return merge(other, (x, y) -> x / y);
+        return combine(other, (x, y) -> x / y);
     }
 
     public DoubleSeries returns() {
-        return this.div(lag(1)).plus(-1);
+        return returns(1);
     }
 
     public double getLast() {
-        return getData().get(size() - 1).getItem();
+        return getValue(size() - 1);
     }
 
     public DoubleSeries tail(int n) {
-        return new DoubleSeries(getData().subList(size() - n, size()), getName());
+        return sliceByIndex(size() - n, size());
+    }
+
+    /**
+     * View of the entries {@code [from, to)}.
+     */
+    @Override public DoubleSeries sliceByIndex(int from, int to) {
+        return view(mIndex.slice(from, to), from);
+    }
+
+    @Override public DoubleSeries slice(Instant from, Instant to) {
+        return (DoubleSeries) super.slice(from, to);
+    }
+
+    @Override int lowerBound(Instant instant) {
+        return mIndex.lowerBound(instant);
     }
 
+    /**
+     * Same as {@code div(lag(days)).plus(-1)}, computed in one pass for strictly ascending series.
+     */
     public DoubleSeries returns(int days) {
-        return this.div(lag(days)).plus(-1);
+        if (!mIndex.isStrictlyAscending()) {
+            return this.div(lag(days)).plus(-1);
+        }
+        check(days > 0);
+        check(size() >= days);
+        return lazy().returns(days).collect();
+    }
+
+    /**
+     * Starts a lazy expression over this series, evaluated in a single pass by its terminal operation.
+     */
+    public SeriesExpression lazy() {
+        return SeriesExpression.of(this);
     }
 
     public double[] toArray() {
-        return stream().mapToDouble(Entry::getItem).toArray();
+        return Arrays.copyOfRange(mValues, mOffset, mOffset + size());
+    }
+
+    @Override public boolean isAscending() {
+        return mIndex.isAscending();
     }
 
     @Override public DoubleSeries toAscending() {
-        return new DoubleSeries(super.toAscending().mData, getName());
+        return isAscending() ? this : reverse();
     }
 
     @Override public DoubleSeries toDescending() {
-        return new DoubleSeries(super.toDescending().mData, getName());
+        return isAscending() ? reverse() : this;
     }
 
+    @Override public DoubleSeries reverse() {
+        int size = size();
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = mValues[mOffset + size - 1 - i];
+        }
+        return new DoubleSeries(mIndex.reverse(), values, mName);
+    }
+
+    /**
+     * View of the values shifted {@code k} entries later; it shares this series's arrays.
+     */
     @Override public DoubleSeries lag(int k) {
-        return new DoubleSeries(super.lag(k).mData, getName());
+        check(k > 0);
+        check(size() >= k);
+        return view(mIndex.slice(k, size()), 0);
     }
 
     @Override public String toString() {
-        return mData.isEmpty() ? "DoubleSeries{empty}" :
+        return size() == 0 ? "DoubleSeries{empty}" :
             "DoubleSeries{" +
                 "mName=" + mName +
-                ", from=" + mData.get(0).getInstant() +
-                ", to=" + mData.get(mData.size() - 1).getInstant() +
-                ", size=" + mData.size() +
+                ", from=" + mIndex.getInstant(0) +
+                ", to=" + mIndex.getInstant(size() - 1) +
+                ", size=" + size() +
                 '}';
     }
+
+    private class EntryList extends AbstractList<Entry<Double>> {
+        @Override public Entry<Double> get(int index) {
+            check(index >= 0 && index < size());
+            return new Entry<>(getValue(index), mIndex.get(index));
+        }
+
+        @Override public int size() {
+            return mIndex.mSize;
+        }
+
+        @Override public void add(int index, Entry<Double> entry) {
+            check(index == size());
+            append(entry.mTime, entry.getItem());
+            modCount++;
+        }
+    }
 }
@@ -0,0 +1,60 @@
+package org.lst.trading.lib.series;
+
+import java.nio.DoubleBuffer;
+import java.util.List;
+
+/**
+ * Read-only {@link ColumnarStore} whose values stay in a memory-mapped {@link SeriesFile}. Single values are
+ * read straight from the mapping; bulk operations that need a {@code double[]} copy the column to the heap
+ * once and reuse it.
+ */
+public class MappedColumnarStore extends ColumnarStore {
+    private final List<String> mNames;
+    private final DoubleBuffer[] mMapped;
+
+    MappedColumnarStore(List<String> names, long[] times, DoubleBuffer[] mapped) {
+        this(names, times, mapped, new double[mapped.length][], 0, times.length);
+    }
+
+    // Slices share the mapping and the columns copied to the heap so far
+    private MappedColumnarStore(List<String> names, long[] times, DoubleBuffer[] mapped, double[][] columns, int offset, int size) {
+        super(times, columns, offset, size);
+        mNames = names;
+        mMapped = mapped;
+        seal();
+    }
+
+    public List<String> getNames() {
+        return mNames;
+    }
+
+    @Override public double get(int row, int column) {
+        return mMapped[column].get(mOffset + row);
+    }
+
+    @Override public boolean isPresent(int row, int column) {
+        return !Double.isNaN(mMapped[column].get(mOffset + row));
+    }
+
+    @Override double[] column(int column) {
+        synchronized (mColumns) {
+            if (mColumns[column] == null) {
+                double[] values = new double[mMapped[column].capacity()];
+                mMapped[column].get(0, values);
+                mColumns[column] = values;
+            }
+            return mColumns[column];
+        }
+    }
+
+    @Override ColumnarStore view(int offset, int size) {
+        return new MappedColumnarStore(mNames, mTimes, mMapped, mColumns, offset, size);
+    }
+
+    @Override public String toString() {
+        return "MappedColumnarStore{" +
+            "columns=" + mMapped.length +
+            ", size=" + mSize +
+            '}';
+    }
+}
@@ -1,22 +1,27 @@
 package org.lst.trading.lib.series;
 
+import java.time.Instant;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.List;
 
 import static java.util.stream.Collectors.joining;
-import static java.util.stream.Collectors.toList;
+import static org.lst.trading.lib.util.Util.check;
 
 public class MultipleDoubleSeries extends TimeSeries<List<Double>> {
     List<String> mNames;
+    ColumnarStore mStore;
+    TimeIndex mTimeIndex;
 
     public MultipleDoubleSeries(Collection<String> names) {
         mNames = new ArrayList<>(names);
+        setStore(new ColumnarStore(mNames.size()));
     }
 
     public MultipleDoubleSeries(DoubleSeries... series) {
         mNames = new ArrayList<>();
+        setStore(new ColumnarStore(0));
         for (int i = 0; i < series.length; i++) {
             if (i == 0) {
                 _init(series[i]);
@@ -26,28 +31,78 @@ public class MultipleDoubleSeries extends TimeSeries<List<Double>> {
         }
     }
 
+    public MultipleDoubleSeries(List<String> names, ColumnarStore store) {
+        check(names.size() == store.getColumnCount());
+        mNames = new ArrayList<>(names);
+        setStore(store);
+    }
+
     void _init(DoubleSeries series) {
-        mData = new ArrayList<>();
-        for (Entry<Double> entry : series) {
-            LinkedList<Double> list = new LinkedList<>();
-            list.add(entry.mT);
-            add(new Entry<>(list, entry.mInstant));
-        }
+        setStore(ColumnarStore.of(series));
         mNames.add(series.mName);
     }
 
+    void setStore(ColumnarStore store) {
+        mStore = store;
+        mTimeIndex = null;
+        mData = new RowList();
+    }
+
     public void addSeries(DoubleSeries series) {
-        mData = TimeSeries.merge(this, series, (l, t) -> {
-            l.add(t);
-            return l;
-        }).mData;
+        check(isAscending());
+        check(series.isAscending());
+        setStore(mStore.join(series));
         mNames.add(series.mName);
     }
 
+    public ColumnarStore getStore() {
+        return mStore;
+    }
+
+    /**
+     * Copies a column into a series. Columns taken while the row count doesn't change share one
+     * {@link TimeIndex}, so arithmetic between them runs element by element.
+     */
     public DoubleSeries getColumn(String name) {
         int index = getNames().indexOf(name);
-        List<Entry<Double>> entries = mData.stream().map(t -> new Entry<Double>(t.getItem().get(index), t.getInstant())).collect(toList());
-        return new DoubleSeries(entries, name);
+        return new DoubleSeries(getTimeIndex(), mStore.copyColumn(index), name);
+    }
+
+    /**
+     * Index over the rows, shared by all columns. A sealed store's timestamps are used without copying.
+     */
+    public TimeIndex getTimeIndex() {
+        if (mTimeIndex == null || mTimeIndex.size() != mStore.size()) {
+            int offset = mStore.mOffset;
+            int size = mStore.size();
+            TimeIndex index = mStore.isSealed() ? new TimeIndex(mStore.mTimes, offset, size) : TimeIndex.copyOf(mStore.mTimes, offset, offset + size);
+            mTimeIndex = index.share();
+        }
+        return mTimeIndex;
+    }
+
+    @Override public boolean isAscending() {
+        return getTimeIndex().isAscending();
+    }
+
+    /**
+     * Read-only view of the rows {@code [from, to)} over the same store arrays, e.g. for a walk-forward window
+     * to backtest.
+     */
+    @Override public MultipleDoubleSeries sliceByIndex(int from, int to) {
+        MultipleDoubleSeries slice = new MultipleDoubleSeries(mNames, mStore.slice(from, to));
+        if (mTimeIndex != null && mTimeIndex.size() == mStore.size()) {
+            slice.mTimeIndex = mTimeIndex.slice(from, to);
+        }
+        return slice;
+    }
+
+    @Override public MultipleDoubleSeries slice(Instant from, Instant to) {
+        return (MultipleDoubleSeries) super.slice(from, to);
+    }
+
+    @Override int lowerBound(Instant instant) {
+        return mStore.lowerBound(instant.toEpochMilli());
     }
 
     public int indexOf(String name) {
@@ -62,9 +117,48 @@ public class MultipleDoubleSeries extends TimeSeries<List<Double>> {
         return mData.isEmpty() ? "MultipleDoubleSeries{empty}" :
             "MultipleDoubleSeries{" +
                 "mNames={" + mNames.stream().collect(joining(", ")) +
-                ", from=" + mData.get(0).getInstant() +
-                ", to=" + mData.get(mData.size() - 1).getInstant() +
-                ", size=" + mData.size() +
+                ", from=" + mStore.getInstant(0) +
+                ", to=" + mStore.getInstant(mStore.size() - 1) +
+                ", size=" + mStore.size() +
                 '}';
     }
+
+    private class RowList extends AbstractList<Entry<List<Double>>> {
+        @Override public Entry<List<Double>> get(int index) {
+            check(index >= 0 && index < mStore.size());
+            return new Entry<>(new Row(index), mStore.getTime(index));
+        }
+
+        @Override public int size() {
+            return mStore.size();
+        }
+
+        @Override public void add(int index, Entry<List<Double>> entry) {
+            check(index == mStore.size());
+            mStore.addRow(entry.getInstant(), entry.getItem());
+            modCount++;
+        }
+    }
+
+    private class Row extends AbstractList<Double> {
+        final int mRow;
+
+        Row(int row) {
+            mRow = row;
+        }
+
+        @Override public Double get(int index) {
+            return mStore.get(mRow, index);
+        }
+
+        @Override public Double set(int index, Double element) {
+            double previous = mStore.get(mRow, index);
+            mStore.set(mRow, index, element);
+            return previous;
+        }
+
+        @Override public int size() {
+            return mStore.getColumnCount();
+        }
+    }
 }
@@ -0,0 +1,185 @@
+package org.lst.trading.lib.series;
+
+import java.util.Iterator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+import static org.lst.trading.lib.util.Util.check;
+
+/**
+ * Lazy transformation of series on one {@link TimeIndex}. Operators only build a graph; {@link #toArray()} and
+ * {@link #collect()} run the whole graph in a single pass over the rows and allocate just the output, e.g.
+ * <pre>
+ *     double[] returns = pl.lazy().plus(initialFund).returns(1).toArray();
+ * </pre>
+ * Every node has a value from its first valid row on: {@link #lag} and {@link #returns} drop the first
+ * {@code k} rows, {@link #rolling} the first {@code window - 1}, the same as the eager {@link DoubleSeries}
+ * methods. A node used by several branches of a graph is evaluated once per branch.
+ */
+public class SeriesExpression {
+    final TimeIndex mIndex;
+    final int mStart;
+    final String mName;
+    final Supplier<DoubleSupplier> mCursors;
+
+    private SeriesExpression(TimeIndex index, int start, String name, Supplier<DoubleSupplier> cursors) {
+        mIndex = index;
+        mStart = start;
+        mName = name;
+        mCursors = cursors;
+    }
+
+    public static SeriesExpression of(DoubleSeries series) {
+        double[] values = series.mValues;
+        int offset = series.mOffset;
+        return new SeriesExpression(series.getTimeIndex(), 0, series.getName(), () -> new DoubleSupplier() {
+            int mRow = offset;
+
+            @Override public double getAsDouble() {
+                return values[mRow++];
+            }
+        });
+    }
+
+    public static <T> SeriesExpression of(TimeSeries<T> series, ToDoubleFunction<T> f) {
+        TimeIndex index = new TimeIndex(series.size());
+        for (TimeSeries.Entry<T> entry : series) {
+            index.add(entry.mTime);
+        }
+        return new SeriesExpression(index.share(), 0, null, () -> {
+            Iterator<TimeSeries.Entry<T>> entries = series.iterator();
+            return () -> f.applyAsDouble(entries.next().getItem());
+        });
+    }
+
+    public TimeIndex getTimeIndex() {
+        return mIndex;
+    }
+
+    public SeriesExpression map(DoubleUnaryOperator f) {
+        return derive(mStart, () -> {
+            DoubleSupplier in = mCursors.get();
+            return () -> f.applyAsDouble(in.getAsDouble());
+        });
+    }
+
+    public SeriesExpression plus(double other) {
+        return map(x -> x + other);
+    }
+
+    public SeriesExpression mul(double factor) {
+        return map(x -> x * factor);
+    }
+
+    /**
+     * Value of {@code k} rows earlier.
+     */
+    public SeriesExpression lag(int k) {
+        check(k > 0);
+        return derive(mStart + k, () -> {
+            DoubleSupplier in = mCursors.get();
+            DoubleRingBuffer window = new DoubleRingBuffer(k);
+            return () -> {
+                double value = window.isFull() ? window.get(k - 1) : Double.NaN;
+                window.add(in.getAsDouble());
+                return value;
+            };
+        });
+    }
+
+    /**
+     * Same as {@code zip(lag(days), (x, y) -> x / y - 1)} without evaluating this twice.
+     */
+    public SeriesExpression returns(int days) {
+        check(days > 0);
+        return derive(mStart + days, () -> {
+            DoubleSupplier in = mCursors.get();
+            DoubleRingBuffer window = new DoubleRingBuffer(days);
+            return () -> {
+                double value = in.getAsDouble();
+                double returns = window.isFull() ? value / window.get(days - 1) - 1 : Double.NaN;
+                window.add(value);
+                return returns;
+            };
+        });
+    }
+
+    /**
+     * Applies {@code f} to the values of both expressions in the same row. Both have to be on the same
+     * timestamps; series that aren't are aligned with {@link DoubleSeries#combine} or a
+     * {@link MultipleDoubleSeries} first.
+     */
+    public SeriesExpression zip(SeriesExpression other, DoubleBinaryOperator f) {
+        check(mIndex.isSameAs(other.mIndex), "Expressions are on different time indices");
+        return derive(Math.max(mStart, other.mStart), () -> {
+            DoubleSupplier left = mCursors.get();
+            DoubleSupplier right = other.mCursors.get();
+            return () -> f.applyAsDouble(left.getAsDouble(), right.getAsDouble());
+        });
+    }
+
+    /**
+     * Applies {@code f} to the last {@code window} values, newest at lag 0, once that many are available.
+     */
+    public SeriesExpression rolling(int window, ToDoubleFunction<DoubleRingBuffer> f) {
+        check(window > 0);
+        return derive(mStart + window - 1, () -> {
+            DoubleSupplier in = mCursors.get();
+            DoubleRingBuffer values = new DoubleRingBuffer(window);
+            return () -> {
+                values.add(in.getAsDouble());
+                return values.isFull() ? f.applyAsDouble(values) : Double.NaN;
+            };
+        });
+    }
+
+    public SeriesExpression rollingMean(int window) {
+        return rolling(window, values -> {
+            double sum = 0;
+            for (int i = 0; i < window; i++) {
+                sum += values.get(i);
+            }
+            return sum / window;
+        });
+    }
+
+    public int size() {
+        return Math.max(mIndex.size() - mStart, 0);
+    }
+
+    /**
+     * Evaluates the graph and returns the values from the first valid row on.
+     */
+    public double[] toArray() {
+        double[] values = new double[size()];
+        DoubleSupplier cursor = mCursors.get();
+        for (int row = 0; row < mIndex.size(); row++) {
+            double value = cursor.getAsDouble();
+            if (row >= mStart) {
+                values[row - mStart] = value;
+            }
+        }
+        return values;
+    }
+
+    public DoubleSeries collect() {
+        int size = mIndex.size();
+        TimeIndex index = mIndex.slice(Math.min(mStart, size), size);
+        return new DoubleSeries(index, toArray(), mName);
+    }
+
+    @Override public String toString() {
+        return "SeriesExpression{" +
+            "mName=" + mName +
+            ", index=" + mIndex +
+            ", start=" + mStart +
+            '}';
+    }
+
+    private SeriesExpression derive(int start, Supplier<DoubleSupplier> cursors) {
+        return new SeriesExpression(mIndex, start, mName, cursors);
+    }
+}
@@ -0,0 +1,217 @@
+package org.lst.trading.lib.series;
+
+import org.lst.trading.lib.csv.ParallelCsvReader;
+import org.lst.trading.lib.util.DatabaseHelper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.lst.trading.lib.util.Util.check;
+
+/**
+ * Binary columnar file for a {@link ColumnarStore} and its column names. All values are little-endian:
+ *
+ * <pre>
+ * int magic, int version, int rows, int columns, int dataOffset
+ * columns x (int length, UTF-8 name)
+ * zero padding up to dataOffset, a multiple of 8
+ * long[rows] epoch millisecond timestamps
+ * columns x double[rows] values, NaN where missing
+ * </pre>
+ *
+ * {@link #open(Path)} maps the file instead of parsing it, so opening takes time proportional to the number of
+ * rows rather than the number of values, and the operating system shares the pages between processes.
+ */
+public class SeriesFile {
+    static final int MAGIC = 0x53545331; // "STS1"
+    static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    public static void write(Path path, MultipleDoubleSeries series) throws IOException {
+        write(path, series.getNames(), series.getStore());
+    }
+
+    public static void write(Path path, DoubleSeries series) throws IOException {
+        List<String> names = new ArrayList<>();
+        names.add(series.getName());
+        write(path, names, ColumnarStore.of(series));
+    }
+
+    /**
+     * Writes to a temporary file next to {@code path} and moves it into place, so readers never map a partly
+     * written file.
+     */
+    public static void write(Path path, List<String> names, ColumnarStore store) throws IOException {
+        check(names.size() == store.getColumnCount());
+        Path absolute = path.toAbsolutePath();
+        Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                writeHeader(channel, buffer, names, store.size());
+                for (int row = 0; row < store.size(); row++) {
+                    ensureRemaining(channel, buffer);
+                    buffer.putLong(store.getTime(row));
+                }
+                for (int column = 0; column < names.size(); column++) {
+                    for (int row = 0; row < store.size(); row++) {
+                        ensureRemaining(channel, buffer);
+                        buffer.putDouble(store.get(row, column));
+                    }
+                }
+                flush(channel, buffer);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Maps a file written by {@link #write}. Timestamps are copied to the heap, the value columns stay in the
+     * mapping, which remains valid after the file is closed.
+     */
+    public static MappedColumnarStore open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            header.flip();
+            check(header.getInt() == MAGIC, "Not a series file: " + path);
+            check(header.getInt() == VERSION, "Unsupported series file version: " + path);
+            int rows = header.getInt();
+            int columns = header.getInt();
+            int dataOffset = header.getInt();
+            check(rows >= 0 && columns >= 0 && dataOffset % 8 == 0, "Corrupt series file: " + path);
+            check(channel.size() == dataOffset + 8L * rows * (columns + 1), "Truncated series file: " + path);
+
+            ByteBuffer nameBytes = ByteBuffer.allocate(dataOffset - HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, nameBytes, HEADER_SIZE);
+            nameBytes.flip();
+            List<String> names = new ArrayList<>(columns);
+            for (int column = 0; column < columns; column++) {
+                byte[] name = new byte[nameBytes.getInt()];
+                nameBytes.get(name);
+                names.add(new String(name, StandardCharsets.UTF_8));
+            }
+
+            // One mapping per column keeps each below the 2 GB limit of a single buffer
+            long columnSize = 8L * rows;
+            long[] times = new long[rows];
+            map(channel, dataOffset, columnSize).asLongBuffer().get(times);
+            DoubleBuffer[] values = new DoubleBuffer[columns];
+            for (int column = 0; column < columns; column++) {
+                values[column] = map(channel, dataOffset + columnSize * (column + 1), columnSize).asDoubleBuffer();
+            }
+            return new MappedColumnarStore(names, times, values);
+        }
+    }
+
+    public static MultipleDoubleSeries read(Path path) throws IOException {
+        MappedColumnarStore store = open(path);
+        return new MultipleDoubleSeries(store.getNames(), store);
+    }
+
+    /**
+     * Converts {@code columns} of a CSV file.
+     */
+    public static void fromCsv(Path csv, Path path, String timeColumn, String... columns) throws IOException {
+        write(path, new ParallelCsvReader().readSeries(csv, timeColumn, columns));
+    }
+
+    /**
+     * Converts a directory with one CSV file per symbol into a single file with one column per symbol, see
+     * {@link ParallelCsvReader#readDirectory}.
+     */
+    public static void fromCsvDirectory(Path directory, Path path, String timeColumn, String column) throws IOException {
+        write(path, new ParallelCsvReader().readDirectory(directory, timeColumn, column));
+    }
+
+    /**
+     * Converts every symbol in the database into a single file with one column per symbol, aligned on their
+     * timestamps.
+     */
+    public static void fromDatabase(DatabaseHelper db, Path path) throws IOException {
+        List<String> names = new ArrayList<>();
+        List<DoubleSeries> series = new ArrayList<>();
+        for (String symbol : db.getSymbols()) {
+            DoubleSeries s = db.getSeries(symbol);
+            if (s != null) {
+                names.add(symbol);
+                series.add(s.toAscending());
+            }
+        }
+        write(path, names, ColumnarStore.align(series));
+    }
+
+    private static void writeHeader(FileChannel channel, ByteBuffer buffer, List<String> names, int rows) throws IOException {
+        List<byte[]> encoded = new ArrayList<>(names.size());
+        int dataOffset = HEADER_SIZE;
+        for (String name : names) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            dataOffset += 4 + bytes.length;
+        }
+        dataOffset = (dataOffset + 7) & ~7;
+
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(names.size()).putInt(dataOffset);
+        int position = HEADER_SIZE;
+        for (byte[] bytes : encoded) {
+            if (buffer.remaining() < 4) {
+                flush(channel, buffer);
+            }
+            buffer.putInt(bytes.length);
+            for (byte b : bytes) {
+                if (!buffer.hasRemaining()) {
+                    flush(channel, buffer);
+                }
+                buffer.put(b);
+            }
+            position += 4 + bytes.length;
+        }
+        for (; position < dataOffset; position++) {
+            if (!buffer.hasRemaining()) {
+                flush(channel, buffer);
+            }
+            buffer.put((byte) 0);
+        }
+    }
+
+    private static void ensureRemaining(FileChannel channel, ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < 8) {
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            check(read >= 0, "Unexpected end of series file");
+            position += read;
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,184 @@
+package org.lst.trading.lib.series;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.lst.trading.lib.util.Util.check;
+
+/**
+ * Epoch millisecond timestamps of a series. Series derived from another one, e.g. by arithmetic, share its
+ * index, so {@link #isSameAs} is usually an identity check. A shared index is never modified; a series that
+ * appends to one copies it first.
+ * <p>
+ * Whether the timestamps are ascending is tracked as they are added, and ascending indices are searched by
+ * binary search. {@link #slice} returns a view of a range that shares the array.
+ */
+public class TimeIndex {
+    long[] mTimes;
+    int mOffset;
+    int mSize;
+    boolean mShared;
+    boolean mStrictlyAscending = true;
+    boolean mNonDecreasing = true;
+
+    public TimeIndex() {
+        this(16);
+    }
+
+    public TimeIndex(int capacity) {
+        mTimes = new long[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Takes ownership of the first {@code size} entries of {@code times}.
+     */
+    public TimeIndex(long[] times, int size) {
+        this(times, 0, size);
+    }
+
+    TimeIndex(long[] times, int offset, int size) {
+        check(offset >= 0 && size >= 0 && offset + size <= times.length);
+        mTimes = times;
+        mOffset = offset;
+        mSize = size;
+        for (int i = offset + 1; i < offset + size && mNonDecreasing; i++) {
+            mStrictlyAscending &= times[i - 1] < times[i];
+            mNonDecreasing = times[i - 1] <= times[i];
+        }
+    }
+
+    public static TimeIndex copyOf(long[] times, int from, int to) {
+        return new TimeIndex(Arrays.copyOfRange(times, from, to), to - from);
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public long get(int i) {
+        return mTimes[mOffset + i];
+    }
+
+    public Instant getInstant(int i) {
+        return Instant.ofEpochMilli(get(i));
+    }
+
+    public boolean isStrictlyAscending() {
+        return mStrictlyAscending;
+    }
+
+    /**
+     * True if the timestamps never decrease and the last one is after the first, like
+     * {@link TimeSeries#isAscending()}.
+     */
+    public boolean isAscending() {
+        return mNonDecreasing && (mSize <= 1 || get(0) < get(mSize - 1));
+    }
+
+    /**
+     * Position of the first timestamp not before {@code time}, or {@link #size()} if there is none.
+     */
+    public int lowerBound(long time) {
+        check(mNonDecreasing, "Index is not ascending");
+        int low = 0;
+        int high = mSize;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mTimes[mOffset + mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public int lowerBound(Instant instant) {
+        return lowerBound(instant.toEpochMilli());
+    }
+
+    /**
+     * Position of the first occurrence of {@code time}, or {@code -1}.
+     */
+    public int indexOf(long time) {
+        int index = lowerBound(time);
+        return index < mSize && get(index) == time ? index : -1;
+    }
+
+    public int indexOf(Instant instant) {
+        return indexOf(instant.toEpochMilli());
+    }
+
+    /**
+     * View of the positions {@code [from, to)} that shares this index's array.
+     */
+    public TimeIndex slice(int from, int to) {
+        check(from >= 0 && from <= to && to <= mSize);
+        share();
+        if (from == 0 && to == mSize) {
+            return this;
+        }
+        TimeIndex slice;
+        if (mNonDecreasing) {
+            // A range of an ascending index is ascending, no need to scan it
+            slice = new TimeIndex(mTimes, mOffset + from, 0);
+            slice.mSize = to - from;
+            slice.mStrictlyAscending = mStrictlyAscending;
+        } else {
+            slice = new TimeIndex(mTimes, mOffset + from, to - from);
+        }
+        return slice.share();
+    }
+
+    /**
+     * True if both indices hold the same timestamps, so series on them can be combined element by element.
+     */
+    public boolean isSameAs(TimeIndex other) {
+        if (this == other || mTimes == other.mTimes && mOffset == other.mOffset && mSize == other.mSize) {
+            return true;
+        }
+        return mSize == other.mSize && Arrays.equals(mTimes, mOffset, mOffset + mSize, other.mTimes, other.mOffset, other.mOffset + mSize);
+    }
+
+    TimeIndex share() {
+        mShared = true;
+        return this;
+    }
+
+    void add(long time) {
+        check(!mShared, "Index is shared");
+        if (mOffset + mSize == mTimes.length) {
+            mTimes = Arrays.copyOf(mTimes, mTimes.length + (mTimes.length >> 1) + 1);
+        }
+        if (mSize > 0 && get(mSize - 1) >= time) {
+            mStrictlyAscending = false;
+            mNonDecreasing &= get(mSize - 1) == time;
+        }
+        mTimes[mOffset + mSize++] = time;
+    }
+
+    TimeIndex copy(int capacity) {
+        TimeIndex copy = new TimeIndex(Arrays.copyOfRange(mTimes, mOffset, mOffset + Math.max(capacity, mSize)), 0);
+        copy.mSize = mSize;
+        copy.mStrictlyAscending = mStrictlyAscending;
+        copy.mNonDecreasing = mNonDecreasing;
+        return copy;
+    }
+
+    TimeIndex reverse() {
+        long[] times = new long[mSize];
+        for (int i = 0; i < mSize; i++) {
+            times[i] = get(mSize - 1 - i);
+        }
+        return new TimeIndex(times, mSize);
+    }
+
+    @Override public String toString() {
+        return mSize == 0 ? "TimeIndex{empty}" :
+            "TimeIndex{" +
+                "from=" + getInstant(0) +
+                ", to=" + getInstant(mSize - 1) +
+                ", size=" + mSize +
+                '}';
+    }
+}
@@ -9,13 +9,20 @@ import java.util.stream.Stream;
 import static org.lst.trading.lib.util.Util.check;
 
 public class TimeSeries<T> implements Iterable<TimeSeries.Entry<T>> {
+    /**
+     * Item with its timestamp in epoch milliseconds; sub-millisecond precision of an {@link Instant} is dropped.
+     */
     public static class Entry<T> {
         T mT;
-        Instant mInstant;
+        long mTime;
 
         public Entry(T t, Instant instant) {
+            this(t, instant.toEpochMilli());
+        }
+
+        public Entry(T t, long time) {
             mT = t;
-            mInstant = instant;
+            mTime = time;
         }
 
         public T getItem() {
@@ -23,7 +30,11 @@ public class TimeSeries<T> implements Iterable<TimeSeries.Entry<T>> {
         }
 
         public Instant getInstant() {
-            return mInstant;
+            return Instant.ofEpochMilli(mTime);
+        }
+
+        public long getTime() {
+            return mTime;
         }
 
         @Override
@@ -33,7 +44,7 @@ public class TimeSeries<T> implements Iterable<TimeSeries.Entry<T>> {
 
             Entry entry = (Entry) o;
 
-            if (!mInstant.equals(entry.mInstant)) return false;
+            if (mTime != entry.mTime) return false;
             if (mT != null ? !mT.equals(entry.mT) : entry.mT != null) return false;
             return true;
         }
@@ -41,13 +52,13 @@ public class TimeSeries<T> implements Iterable<TimeSeries.Entry<T>> {
         @Override
         public int hashCode() {
             int result = mT != null ? mT.hashCode() : 0;
-            result = 31 * result + mInstant.hashCode();
+            result = 31 * result + Long.hashCode(mTime);
             return result;
         }
 
         @Override public String toString() {
             return "Entry{" +
-                "mInstant=" + mInstant +
+                "mInstant=" + getInstant() +
                 ", mT=" + mT +
                 '}';
         }
@@ -100,6 +111,40 @@ public class TimeSeries<T> implements Iterable<TimeSeries.Entry<T>> {
         return mData.get(index);
     }
 
+    /**
+     * Read-only view of the entries {@code [from, to)}. The series must not be appended to while the view is
+     * in use.
+     */
+    public TimeSeries<T> sliceByIndex(int from, int to) {
+        return new TimeSeries<>(Collections.unmodifiableList(mData.subList(from, to)));
+    }
+
+    /**
+     * View of the entries of an ascending series from {@code from}, inclusive, to {@code to}, exclusive. The
+     * bounds are found by binary search.
+     */
+    public TimeSeries<T> slice(Instant from, Instant to) {
+        int start = lowerBound(from);
+        return sliceByIndex(start, Math.max(start, lowerBound(to)));
+    }
+
+    // Position of the first entry not before instant
+    int lowerBound(Instant instant) {
+        check(!(mData instanceof LinkedList));
+        long time = instant.toEpochMilli();
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mData.get(mid).mTime < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
     public interface MergeFunction<T, F> {
         F merge(T t1, T t2);
     }
@@ -111,13 +156,29 @@ public class TimeSeries<T> implements Iterable<TimeSeries.Entry<T>> {
     public <F> TimeSeries<F> map(Function<T, F> f) {
         List<Entry<F>> newEntries = new ArrayList<>(size());
         for (Entry<T> entry : mData) {
-            newEntries.add(new Entry<>(f.apply(entry.mT), entry.mInstant));
+            newEntries.add(new Entry<>(f.apply(entry.mT), entry.mTime));
         }
         return new TimeSeries<>(newEntries);
     }
 
+    /**
+     * True if the timestamps never decrease and the last one is after the first.
+     */
     public boolean isAscending() {
-        return size() <= 1 || get(0).getInstant().isBefore(get(1).mInstant);
+        Iterator<Entry<T>> entries = iterator();
+        if (!entries.hasNext()) {
+            return true;
+        }
+        long first = entries.next().mTime;
+        long previous = first;
+        while (entries.hasNext()) {
+            long time = entries.next().mTime;
+            if (time < previous) {
+                return false;
+            }
+            previous = time;
+        }
+        return size() == 1 || first < previous;
     }
 
     public TimeSeries<T> toAscending() {
@@ -151,12 +212,12 @@ public class TimeSeries<T> implements Iterable<TimeSeries.Entry<T>> {
         ArrayList<Entry<T>> entries = new ArrayList<>(addEmpty ? mData.size() : mData.size() - k);
         if (addEmpty) {
             for (int i = 0; i < k; i++) {
-                entries.add(new Entry<>(emptyVal, mData.get(i).mInstant));
+                entries.add(new Entry<>(emptyVal, mData.get(i).mTime));
             }
         }
 
         for (int i = k; i < size(); i++) {
-            entries.add(new Entry<>(mData.get(i - k).getItem(), mData.get(i).getInstant()));
+            entries.add(new Entry<>(mData.get(i - k).getItem(), mData.get(i).mTime));
         }
 
         return new TimeSeries<>(entries);
@@ -175,26 +236,23 @@ public class TimeSeries<T> implements Iterable<TimeSeries.Entry<T>> {
             Entry<T1> n1 = i1.next();
             Entry<T2> n2 = i2.next();
 
-            while (!n2.mInstant.equals(n1.mInstant)) {
-                if (n1.mInstant.isBefore(n2.mInstant)) {
-                    while (i1.hasNext()) {
-                        n1 = i1.next();
-                        if (!n1.mInstant.isBefore(n2.mInstant)) {
-                            break;
-                        }
+            // Advance the earlier side until the times match or it runs out
+            while (n2.mTime != n1.mTime) {
+                if (n1.mTime < n2.mTime) {
+                    if (!i1.hasNext()) {
+                        break;
                     }
-                } else if (n2.mInstant.isBefore(n1.mInstant)) {
-                    while (i2.hasNext()) {
-                        n2 = i2.next();
-                        if (!n2.mInstant.isBefore(n1.mInstant)) {
-                            break;
-                        }
+                    n1 = i1.next();
+                } else {
+                    if (!i2.hasNext()) {
+                        break;
                     }
+                    n2 = i2.next();
                 }
             }
 
-            if (n2.mInstant.equals(n1.mInstant)) {
-                newEntries.add(new Entry<F>(f.merge(n1.mT, n2.mT), n1.mInstant));
+            if (n2.mTime == n1.mTime) {
+                newEntries.add(new Entry<F>(f.merge(n1.mT, n2.mT), n1.mTime));
             }
         }
 
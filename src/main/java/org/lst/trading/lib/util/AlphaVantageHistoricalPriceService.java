@@ -2,22 +2,31 @@ package org.lst.trading.lib.util;
 
 import org.lst.trading.lib.csv.CsvReader;
 import org.lst.trading.lib.series.DoubleSeries;
+import org.lst.trading.lib.series.MultipleDoubleSeries;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rx.Observable;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Clock;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
-import java.util.stream.Stream;
 
 import static java.lang.String.format;
 import static org.lst.trading.lib.csv.CsvReader.ParseFunction.doubleColumn;
 import static org.lst.trading.lib.csv.CsvReader.ParseFunction.ofColumn;
 
 public class AlphaVantageHistoricalPriceService implements HistoricalPriceService {
+    public static final String DEFAULT_URL = "https://www.alphavantage.co/query";
+    // outputsize=compact returns the latest 100 trading days, which always span more than 100 calendar days
+    static final int COMPACT_DAYS = 100;
+
     private final String apikey;
+    private final String baseUrl;
+    private Clock clock = Clock.systemUTC();
 
     public static final String SEP = ",";
     public static final CsvReader.ParseFunction<Instant> DATE_COLUMN = ofColumn("timestamp").map(s -> LocalDate.from(DateTimeFormatter.ISO_DATE.parse(s)).atStartOfDay(ZoneOffset.UTC.normalized()).toInstant());
@@ -30,27 +39,53 @@ public class AlphaVantageHistoricalPriceService implements HistoricalPriceServic
     private static final Logger log = LoggerFactory.getLogger(AlphaVantageHistoricalPriceService.class);
 
     public AlphaVantageHistoricalPriceService(String apikey) {
+        this(apikey, DEFAULT_URL);
+    }
+
+    /**
+     * Queries {@code baseUrl} instead of the public endpoint, e.g. a proxy or a local stub server.
+     */
+    public AlphaVantageHistoricalPriceService(String apikey, String baseUrl) {
         this.apikey = apikey;
+        this.baseUrl = baseUrl;
+    }
+
+    public void setClock(Clock clock) {
+        this.clock = clock;
     }
 
     @Override
     public Observable<DoubleSeries> getHistoricalAdjustedPrices(String symbol) {
-        return Http.get(createHistoricalPricesUrl(symbol, apikey))
-                .flatMap(Http.asString())
-                .map(csv -> csvToDoubleSeries(csv, symbol));
+        return fetch(symbol, "full");
+    }
+
+    /**
+     * Uses {@code outputsize=compact} when {@code since} is recent enough for the latest 100 trading days to
+     * cover the gap, which is a few kilobytes instead of the whole history.
+     */
+    @Override
+    public Observable<DoubleSeries> getHistoricalAdjustedPrices(String symbol, LocalDate since) {
+        boolean compact = !since.isBefore(LocalDate.now(clock).minusDays(COMPACT_DAYS));
+        return fetch(symbol, compact ? "compact" : "full")
+                .map(series -> HistoricalPriceService.after(series, since));
+    }
+
+    private Observable<DoubleSeries> fetch(String symbol, String outputSize) {
+        return Http.get(createHistoricalPricesUrl(symbol, outputSize))
+                .flatMap(Http.parse(body -> parseDoubleSeries(body, symbol)));
     }
 
-    private static DoubleSeries csvToDoubleSeries(String csv, String symbol) {
-        Stream<String> lines = Stream.of(csv.split("\n"));
-        DoubleSeries prices = CsvReader.parse(lines, SEP, DATE_COLUMN, CLOSE_COLUMN);
+    // Newest first on the wire, so sorting ascending is a reversal of the parsed columns
+    private static DoubleSeries parseDoubleSeries(InputStream body, String symbol) throws IOException {
+        MultipleDoubleSeries parsed = CsvReader.parse(body, SEP, DATE_COLUMN.getColumn(), CLOSE_COLUMN.getColumn());
+        DoubleSeries prices = new MultipleDoubleSeries(parsed.getNames(), parsed.getStore().toAscending()).getColumn(CLOSE_COLUMN.getColumn());
         prices.setName(symbol);
-        prices = prices.toAscending();
         return prices;
     }
 
-    private static String createHistoricalPricesUrl(String symbol, String apikey) {
-        return format("https://www.alphavantage.co/query?function=TIME_SERIES_DAILY&symbol=%s&apikey=%s&datatype=csv&outputsize=full",
-                symbol, apikey);
+    private String createHistoricalPricesUrl(String symbol, String outputSize) {
+        return format("%s?function=TIME_SERIES_DAILY&symbol=%s&apikey=%s&datatype=csv&outputsize=%s",
+                baseUrl, symbol, apikey, outputSize);
     }
 
 }
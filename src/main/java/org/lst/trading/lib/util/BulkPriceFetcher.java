@@ -0,0 +1,114 @@
+package org.lst.trading.lib.util;
+
+import org.lst.trading.lib.series.DoubleSeries;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.lst.trading.lib.util.Util.check;
+
+/**
+ * Wraps a {@link HistoricalPriceService} for fetching many symbols: every request waits for a token of the
+ * provider quota, failed requests are retried with exponential backoff, and concurrent requests for the same
+ * symbol share a single download. {@link #fetchAll(List)} runs a bounded number of requests at once and
+ * emits each series as soon as it arrives.
+ */
+public class BulkPriceFetcher implements HistoricalPriceService {
+    private static final Logger log = LoggerFactory.getLogger(BulkPriceFetcher.class);
+
+    private final HistoricalPriceService service;
+    private final Map<String, Observable<DoubleSeries>> inFlight = new ConcurrentHashMap<>();
+    private TokenBucket rateLimit;
+    private int maxConcurrency = 4;
+    private int maxRetries = 3;
+    private Duration backoff = Duration.ofSeconds(1);
+
+    public BulkPriceFetcher(HistoricalPriceService service) {
+        this.service = service;
+    }
+
+    /**
+     * Allows at most {@code permits} requests per {@code period}, e.g. 5 per minute for the free Alpha Vantage
+     * tier. Requests are spaced evenly rather than sent in bursts, so no window of length {@code period} sees
+     * more than the quota. Retries count against it.
+     */
+    public void setRateLimit(int permits, Duration period) {
+        rateLimit = new TokenBucket(permits, period, 1);
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        check(maxConcurrency > 0);
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Retries a failed request up to {@code maxRetries} times, waiting {@code backoff} before the first retry
+     * and twice as long before each further one.
+     */
+    public void setRetries(int maxRetries, Duration backoff) {
+        check(maxRetries >= 0);
+        this.maxRetries = maxRetries;
+        this.backoff = backoff;
+    }
+
+    @Override public Observable<DoubleSeries> getHistoricalAdjustedPrices(String symbol) {
+        return shared(symbol, () -> service.getHistoricalAdjustedPrices(symbol));
+    }
+
+    @Override public Observable<DoubleSeries> getHistoricalAdjustedPrices(String symbol, LocalDate since) {
+        return shared(symbol + "@" + since, () -> service.getHistoricalAdjustedPrices(symbol, since));
+    }
+
+    /**
+     * Emits the full history of each symbol in order of completion. A symbol that still fails after all
+     * retries doesn't stop the others; its error is reported once the rest are done.
+     */
+    public Observable<DoubleSeries> fetchAll(List<String> symbols) {
+        return Observable.mergeDelayError(Observable.from(symbols).map(this::getHistoricalAdjustedPrices), maxConcurrency);
+    }
+
+    /**
+     * Same as {@link #fetchAll(List)} with only the days after {@code since}.
+     */
+    public Observable<DoubleSeries> fetchAll(List<String> symbols, LocalDate since) {
+        return Observable.mergeDelayError(Observable.from(symbols).map(s -> getHistoricalAdjustedPrices(s, since)), maxConcurrency);
+    }
+
+    // Subscribers arriving while a request for the key is running get its result instead of a new request
+    private Observable<DoubleSeries> shared(String key, Supplier<Observable<DoubleSeries>> request) {
+        return Observable.defer(() -> {
+            boolean[] created = new boolean[1];
+            Observable<DoubleSeries> shared = inFlight.computeIfAbsent(key, k -> {
+                created[0] = true;
+                return limited(request)
+                        .doOnTerminate(() -> inFlight.remove(k))
+                        .cache();
+            });
+            if (!created[0]) {
+                log.debug("Joining in-flight request for {}", key);
+            }
+            return shared;
+        });
+    }
+
+    private Observable<DoubleSeries> limited(Supplier<Observable<DoubleSeries>> request) {
+        Observable<DoubleSeries> attempt = Observable.defer(() -> {
+            long wait = rateLimit == null ? 0 : rateLimit.reserve();
+            return wait == 0 ? request.get() : Observable.timer(wait, TimeUnit.NANOSECONDS).flatMap(t -> request.get());
+        });
+        return attempt.retryWhen(errors -> errors
+                .zipWith(Observable.range(1, maxRetries + 1), (error, retry) -> retry > maxRetries ?
+                        Observable.<Long>error(error) :
+                        Observable.timer(backoff.toMillis() << (retry - 1), TimeUnit.MILLISECONDS)
+                                .doOnSubscribe(() -> log.debug("Retry {} after {}", retry, error.toString())))
+                .flatMap(delay -> delay));
+    }
+}
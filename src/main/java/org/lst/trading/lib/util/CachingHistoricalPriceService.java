@@ -0,0 +1,211 @@
+package org.lst.trading.lib.util;
+
+import org.lst.trading.lib.series.DoubleSeries;
+import org.lst.trading.lib.series.SeriesFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.lst.trading.lib.util.Util.check;
+
+/**
+ * Caches the series of another {@link HistoricalPriceService} in two tiers: parsed series in memory, evicted
+ * least recently used first once their estimated size exceeds a budget, and a {@link SeriesFile} per symbol in
+ * a directory, which survives restarts and opens without parsing. Entries of either tier older than the time to
+ * live are fetched again. Concurrent requests for a symbol that isn't in memory share one load.
+ * <p>
+ * Returned series are shared between callers and must not be modified.
+ */
+public class CachingHistoricalPriceService implements HistoricalPriceService {
+    private static final Logger log = LoggerFactory.getLogger(CachingHistoricalPriceService.class);
+    private static final String EXTENSION = ".sts";
+    // A long timestamp and a double value
+    static final long BYTES_PER_ENTRY = 16;
+    static final long BYTES_PER_SERIES = 128;
+
+    private final HistoricalPriceService service;
+    private final Path directory;
+    private final LinkedHashMap<String, Cached> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Observable<DoubleSeries>> loading = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private long maxBytes = 256L << 20;
+    private long bytes;
+    private Duration ttl = Duration.ofDays(1);
+    private Clock clock = Clock.systemUTC();
+
+    public CachingHistoricalPriceService(HistoricalPriceService service, Path directory) throws IOException {
+        this.service = service;
+        this.directory = Files.createDirectories(directory);
+    }
+
+    /**
+     * Memory budget for parsed series, estimated from their number of entries.
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        check(maxBytes >= 0);
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override public Observable<DoubleSeries> getHistoricalAdjustedPrices(String symbol) {
+        return Observable.defer(() -> {
+            DoubleSeries cached = fromMemory(symbol);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return Observable.just(cached);
+            }
+            return loading.computeIfAbsent(symbol, s -> load(s)
+                    .doOnTerminate(() -> loading.remove(s))
+                    .cache());
+        });
+    }
+
+    /**
+     * Drops the symbol from both tiers.
+     */
+    public void invalidate(String symbol) throws IOException {
+        synchronized (this) {
+            Cached cached = memory.remove(symbol);
+            if (cached != null) {
+                bytes -= cached.bytes;
+            }
+        }
+        Files.deleteIfExists(file(symbol));
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public synchronized long getEstimatedBytes() {
+        return bytes;
+    }
+
+    @Override public String toString() {
+        return "CachingHistoricalPriceService{" +
+            "hits=" + hits +
+            ", diskHits=" + diskHits +
+            ", misses=" + misses +
+            ", evictions=" + evictions +
+            ", bytes=" + getEstimatedBytes() +
+            '}';
+    }
+
+    private Observable<DoubleSeries> load(String symbol) {
+        return Observable.defer(() -> {
+            Path file = file(symbol);
+            try {
+                if (Files.exists(file) && isFresh(Files.getLastModifiedTime(file).toInstant())) {
+                    DoubleSeries series = SeriesFile.read(file).getColumn(symbol);
+                    diskHits.incrementAndGet();
+                    put(symbol, series, Files.getLastModifiedTime(file).toInstant());
+                    return Observable.just(series);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Ignoring unreadable cache file {}: {}", file, e.toString());
+            }
+            misses.incrementAndGet();
+            return service.getHistoricalAdjustedPrices(symbol).map(series -> {
+                series.setName(symbol);
+                Instant fetched = clock.instant();
+                try {
+                    SeriesFile.write(file, series);
+                    // Files age by the same clock as memory entries
+                    Files.setLastModifiedTime(file, FileTime.from(fetched));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                put(symbol, series, fetched);
+                return series;
+            });
+        });
+    }
+
+    private synchronized DoubleSeries fromMemory(String symbol) {
+        Cached cached = memory.get(symbol);
+        if (cached == null) {
+            return null;
+        }
+        if (!isFresh(cached.fetched)) {
+            memory.remove(symbol);
+            bytes -= cached.bytes;
+            return null;
+        }
+        return cached.series;
+    }
+
+    private synchronized void put(String symbol, DoubleSeries series, Instant fetched) {
+        Cached cached = new Cached(series, fetched);
+        Cached previous = memory.put(symbol, cached);
+        bytes += cached.bytes - (previous == null ? 0 : previous.bytes);
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Cached> eldest = memory.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().bytes;
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private boolean isFresh(Instant fetched) {
+        return Duration.between(fetched, clock.instant()).compareTo(ttl) < 0;
+    }
+
+    private Path file(String symbol) {
+        return directory.resolve(URLEncoder.encode(symbol, StandardCharsets.UTF_8) + EXTENSION);
+    }
+
+    private static class Cached {
+        final DoubleSeries series;
+        final Instant fetched;
+        final long bytes;
+
+        Cached(DoubleSeries series, Instant fetched) {
+            this.series = series;
+            this.fetched = fetched;
+            bytes = BYTES_PER_SERIES + BYTES_PER_ENTRY * series.size();
+        }
+    }
+}
@@ -1,6 +1,12 @@
 package org.lst.trading.lib.util;
 
+import org.lst.trading.lib.series.DoubleSeries;
+import org.lst.trading.lib.series.TimeSeries;
+
 import java.sql.*;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 public class DatabaseHelper {
     private static final String DB_URL = "jdbc:sqlite:stockdata.db";
@@ -60,4 +66,33 @@ public class DatabaseHelper {
         }
         return null;
     }
-}
\ No newline at end of file
+
+    public List<String> getSymbols() {
+        String sql = "SELECT symbol FROM stock_data ORDER BY symbol";
+        List<String> symbols = new ArrayList<>();
+        try (Connection conn = DriverManager.getConnection(DB_URL);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                symbols.add(rs.getString("symbol"));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return symbols;
+    }
+
+    public DoubleSeries getSeries(String symbol) {
+        String data = getData(symbol);
+        return data == null ? null : parseSeries(data, symbol);
+    }
+
+    public static DoubleSeries parseSeries(String data, String name) {
+        List<TimeSeries.Entry<Double>> entries = new ArrayList<>();
+        for (String line : data.split("\n")) {
+            String[] parts = line.split(",");
+            entries.add(new TimeSeries.Entry<>(Double.parseDouble(parts[1]), Instant.parse(parts[0])));
+        }
+        return new DoubleSeries(entries, name);
+    }
+}
@@ -1,8 +1,37 @@
 package org.lst.trading.lib.util;
 
 import org.lst.trading.lib.series.DoubleSeries;
+import org.lst.trading.lib.series.TimeSeries;
 import rx.Observable;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
 public interface HistoricalPriceService {
     Observable<DoubleSeries> getHistoricalAdjustedPrices(String symbol);
+
+    /**
+     * Prices of the days after {@code since}, in ascending order. Implementations should fetch only what is
+     * needed; this default downloads the full history and drops the rest.
+     */
+    default Observable<DoubleSeries> getHistoricalAdjustedPrices(String symbol, LocalDate since) {
+        return getHistoricalAdjustedPrices(symbol).map(series -> after(series, since));
+    }
+
+    static DoubleSeries after(DoubleSeries series, LocalDate since) {
+        Instant start = since.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+        if (series.isAscending()) {
+            return series.tail(series.size() - series.getTimeIndex().lowerBound(start));
+        }
+        List<TimeSeries.Entry<Double>> entries = new ArrayList<>();
+        for (TimeSeries.Entry<Double> entry : series) {
+            if (!entry.getInstant().isBefore(start)) {
+                entries.add(entry);
+            }
+        }
+        return new DoubleSeries(entries, series.getName());
+    }
 }
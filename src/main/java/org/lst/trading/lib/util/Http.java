@@ -3,47 +3,40 @@ package org.lst.trading.lib.util;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.util.EntityUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import rx.Observable;
-import rx.Observable.OnSubscribe;
-import rx.Subscriber;
 import rx.functions.Func1;
-import rx.schedulers.Schedulers;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.function.Consumer;
 
 public class Http {
-    private static final Logger log = LoggerFactory.getLogger(Http.class);
+    private static HttpTransport transport;
 
-    private static CloseableHttpClient client;
-
-    public synchronized static HttpClient getDefaultHttpClient() {
-        if (client == null) {
-            client = HttpClients.createDefault();
+    /**
+     * Transport used by {@link #get}, created with default pool size and timeouts on first use.
+     */
+    public synchronized static HttpTransport getDefaultTransport() {
+        if (transport == null) {
+            transport = new HttpTransport();
         }
-        return client;
+        return transport;
+    }
+
+    /**
+     * Replaces the transport used by {@link #get}; the previous one is not closed.
+     */
+    public synchronized static void setDefaultTransport(HttpTransport defaultTransport) {
+        transport = defaultTransport;
+    }
+
+    public static HttpClient getDefaultHttpClient() {
+        return getDefaultTransport().getClient();
     }
 
     public static Observable<HttpResponse> get(String url, Consumer<HttpGet> configureRequest) {
-        HttpGet request = new HttpGet(url);
-        configureRequest.accept(request);
-
-        return Observable.create(new OnSubscribe<HttpResponse>() {
-            @Override public void call(Subscriber<? super HttpResponse> s) {
-                try {
-                    log.debug("GET {}", url);
-                    s.onNext(getDefaultHttpClient().execute(request));
-                    s.onCompleted();
-                } catch (IOException e) {
-                    s.onError(e);
-                }
-            }
-        }).subscribeOn(Schedulers.io());
+        return getDefaultTransport().get(url, configureRequest);
     }
 
     public static Observable<HttpResponse> get(String url) {
@@ -51,6 +44,24 @@ public class Http {
         });
     }
 
+    public interface BodyParser<T> {
+        T parse(InputStream body) throws IOException;
+    }
+
+    /**
+     * Parses the response body while it is being received instead of reading it into a string first. The body
+     * is closed afterwards, which releases the connection.
+     */
+    public static <T> Func1<? super HttpResponse, ? extends Observable<T>> parse(BodyParser<T> parser) {
+        return t -> {
+            try (InputStream body = t.getEntity().getContent()) {
+                return Observable.just(parser.parse(body));
+            } catch (IOException | RuntimeException e) {
+                return Observable.error(e);
+            }
+        };
+    }
+
     public static Func1<? super HttpResponse, ? extends Observable<String>> asString() {
         return t -> {
             try {
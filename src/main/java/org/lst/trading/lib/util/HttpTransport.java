@@ -0,0 +1,203 @@
+package org.lst.trading.lib.util;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.lst.trading.lib.util.Util.check;
+
+/**
+ * HTTP client with a pool of at most {@code maxConnections} keep-alive connections. Requests run on virtual
+ * threads when the runtime has them (Java 21+), otherwise on a pool of as many daemon threads as there are
+ * connections, so waiting for a connection or a response never takes a thread from {@link Schedulers#io()}.
+ * Every request gets the connect, pool and read timeouts unless it sets its own.
+ */
+public class HttpTransport implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(HttpTransport.class);
+    private static final Duration IDLE_TIMEOUT = Duration.ofSeconds(30);
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient client;
+    private final RequestConfig requestConfig;
+    private final ExecutorService executor;
+    private final Scheduler scheduler;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public HttpTransport() {
+        this(32, Duration.ofSeconds(10), Duration.ofSeconds(60));
+    }
+
+    /**
+     * @param connectTimeout limit for opening a connection and for waiting for a free one in the pool
+     * @param readTimeout    limit for the gap between two packets of the response
+     */
+    public HttpTransport(int maxConnections, Duration connectTimeout, Duration readTimeout) {
+        check(maxConnections > 0);
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        connectionManager.setValidateAfterInactivity(2000);
+        requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) connectTimeout.toMillis())
+                .setConnectionRequestTimeout((int) connectTimeout.toMillis())
+                .setSocketTimeout((int) readTimeout.toMillis())
+                .build();
+        client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+                .evictExpiredConnections()
+                .evictIdleConnections(IDLE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+        executor = newExecutor(maxConnections);
+        scheduler = Schedulers.from(executor);
+    }
+
+    public CloseableHttpClient getClient() {
+        return client;
+    }
+
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Emits the response once its headers have arrived. The connection returns to the pool when the body is
+     * consumed or closed, e.g. by {@link Http#parse} or {@link Http#asString()}.
+     */
+    public Observable<HttpResponse> get(String url, Consumer<HttpGet> configureRequest) {
+        return Observable.fromCallable(() -> {
+            HttpGet request = new HttpGet(url);
+            request.setConfig(requestConfig);
+            configureRequest.accept(request);
+            requests.incrementAndGet();
+            inFlight.incrementAndGet();
+            try {
+                log.debug("GET {}", url);
+                return (HttpResponse) client.execute(request);
+            } catch (IOException e) {
+                failures.incrementAndGet();
+                throw e;
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }).subscribeOn(scheduler);
+    }
+
+    public Metrics getMetrics() {
+        return new Metrics(connectionManager.getTotalStats(), requests.get(), failures.get(), inFlight.get());
+    }
+
+    @Override public void close() throws IOException {
+        executor.shutdown();
+        client.close();
+    }
+
+    public static class Metrics {
+        private final PoolStats pool;
+        private final long requests;
+        private final long failures;
+        private final int inFlight;
+
+        Metrics(PoolStats pool, long requests, long failures, int inFlight) {
+            this.pool = pool;
+            this.requests = requests;
+            this.failures = failures;
+            this.inFlight = inFlight;
+        }
+
+        /**
+         * Connections currently serving a request.
+         */
+        public int getLeased() {
+            return pool.getLeased();
+        }
+
+        /**
+         * Idle keep-alive connections ready for reuse.
+         */
+        public int getAvailable() {
+            return pool.getAvailable();
+        }
+
+        /**
+         * Requests waiting for a connection.
+         */
+        public int getPending() {
+            return pool.getPending();
+        }
+
+        public int getMaxConnections() {
+            return pool.getMax();
+        }
+
+        public long getRequests() {
+            return requests;
+        }
+
+        /**
+         * Requests that failed with an I/O error, including timeouts.
+         */
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * Requests waiting for a connection or for response headers.
+         */
+        public int getInFlight() {
+            return inFlight;
+        }
+
+        @Override public String toString() {
+            return "Metrics{" +
+                "leased=" + getLeased() +
+                ", available=" + getAvailable() +
+                ", pending=" + getPending() +
+                ", max=" + getMaxConnections() +
+                ", requests=" + requests +
+                ", failures=" + failures +
+                ", inFlight=" + inFlight +
+                '}';
+        }
+    }
+
+    private static ExecutorService newExecutor(int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, "http-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+}
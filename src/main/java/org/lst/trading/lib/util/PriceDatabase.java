@@ -0,0 +1,268 @@
+package org.lst.trading.lib.util;
+
+import org.lst.trading.lib.series.BarSeries;
+import org.lst.trading.lib.series.DoubleSeries;
+import org.lst.trading.lib.series.TimeSeries;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Daily prices stored one row per symbol and day. The table is keyed on {@code (symbol, epoch_day)} without a
+ * rowid, so the primary key is a clustered index holding all columns: a range query for one symbol reads a
+ * single contiguous run of the b-tree and nothing else.
+ * <p>
+ * Keeps one connection in WAL mode with its prepared statements for its whole life. Methods are synchronized
+ * since a SQLite connection must not be used by two threads at once.
+ */
+public class PriceDatabase implements Closeable {
+    public static final String DEFAULT_URL = "jdbc:sqlite:stockdata.db";
+    private static final int BATCH_SIZE = 1000;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final String REPLACE_BAR = "INSERT OR REPLACE INTO prices (symbol, epoch_day, open, high, low, close, volume) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPSERT_CLOSE = "INSERT INTO prices (symbol, epoch_day, close) VALUES (?, ?, ?) " +
+            "ON CONFLICT (symbol, epoch_day) DO UPDATE SET close = excluded.close";
+
+    private final Connection mConnection;
+    private final Map<String, PreparedStatement> mStatements = new HashMap<>();
+
+    public PriceDatabase() throws SQLException {
+        this(DEFAULT_URL);
+    }
+
+    public PriceDatabase(String url) throws SQLException {
+        mConnection = DriverManager.getConnection(url);
+        try (Statement stmt = mConnection.createStatement()) {
+            stmt.execute("PRAGMA journal_mode=WAL");
+            stmt.execute("PRAGMA synchronous=NORMAL");
+            stmt.execute("CREATE TABLE IF NOT EXISTS prices (" +
+                    "symbol TEXT NOT NULL," +
+                    "epoch_day INTEGER NOT NULL," +
+                    "open REAL," +
+                    "high REAL," +
+                    "low REAL," +
+                    "close REAL," +
+                    "volume INTEGER," +
+                    "PRIMARY KEY (symbol, epoch_day)) WITHOUT ROWID");
+        }
+    }
+
+    public synchronized boolean contains(String symbol) throws SQLException {
+        PreparedStatement stmt = statement("SELECT 1 FROM prices WHERE symbol = ? LIMIT 1");
+        stmt.setString(1, symbol);
+        try (ResultSet rs = stmt.executeQuery()) {
+            return rs.next();
+        }
+    }
+
+    public synchronized List<String> getSymbols() throws SQLException {
+        List<String> symbols = new ArrayList<>();
+        try (ResultSet rs = statement("SELECT DISTINCT symbol FROM prices ORDER BY symbol").executeQuery()) {
+            while (rs.next()) {
+                symbols.add(rs.getString(1));
+            }
+        }
+        return symbols;
+    }
+
+    /**
+     * Last stored day of {@code symbol}, or null if there is none.
+     */
+    public synchronized LocalDate getLastDay(String symbol) throws SQLException {
+        PreparedStatement stmt = statement("SELECT MAX(epoch_day) FROM prices WHERE symbol = ?");
+        stmt.setString(1, symbol);
+        try (ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            long day = rs.getLong(1);
+            return rs.wasNull() ? null : LocalDate.ofEpochDay(day);
+        }
+    }
+
+    /**
+     * Stores the series as closing prices of the UTC day of each entry. Existing rows of the same days keep
+     * their open, high, low and volume and only get the new close.
+     */
+    public synchronized void insert(DoubleSeries series) throws SQLException {
+        write(UPSERT_CLOSE, stmt -> {
+            int count = 0;
+            for (TimeSeries.Entry<Double> entry : series) {
+                stmt.setString(1, series.getName());
+                stmt.setLong(2, epochDay(entry.getTime()));
+                setDouble(stmt, 3, entry.getItem());
+                count = addBatch(stmt, count);
+            }
+        });
+    }
+
+    public synchronized void insert(String symbol, BarSeries bars) throws SQLException {
+        write(REPLACE_BAR, stmt -> {
+            int count = 0;
+            for (int i = 0; i < bars.size(); i++) {
+                bind(stmt, symbol, epochDay(bars.getStartMillis(i)), bars.getOpen(i), bars.getHigh(i), bars.getLow(i), bars.getClose(i), bars.getVolume(i));
+                count = addBatch(stmt, count);
+            }
+        });
+    }
+
+    public DoubleSeries getSeries(String symbol) throws SQLException {
+        return getSeries(symbol, LocalDate.MIN, LocalDate.MAX);
+    }
+
+    /**
+     * Closing prices of {@code symbol} from {@code from} to {@code to}, both inclusive, in ascending order.
+     */
+    public synchronized DoubleSeries getSeries(String symbol, LocalDate from, LocalDate to) throws SQLException {
+        PreparedStatement stmt = statement("SELECT epoch_day, close FROM prices WHERE symbol = ? AND epoch_day BETWEEN ? AND ? ORDER BY epoch_day");
+        bindRange(stmt, symbol, from, to);
+        List<TimeSeries.Entry<Double>> entries = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                entries.add(new TimeSeries.Entry<>(getDouble(rs, 2), rs.getLong(1) * MILLIS_PER_DAY));
+            }
+        }
+        return new DoubleSeries(entries, symbol);
+    }
+
+    /**
+     * Daily bars of {@code symbol} from {@code from} to {@code to}, both inclusive. Prices that were never
+     * stored are {@code NaN} and missing volumes 0.
+     */
+    public synchronized BarSeries getBars(String symbol, LocalDate from, LocalDate to) throws SQLException {
+        PreparedStatement stmt = statement("SELECT epoch_day, open, high, low, close, volume FROM prices WHERE symbol = ? AND epoch_day BETWEEN ? AND ? ORDER BY epoch_day");
+        bindRange(stmt, symbol, from, to);
+        BarSeries bars = new BarSeries(Duration.ofDays(1));
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                bars.add(rs.getLong(1) * MILLIS_PER_DAY, getDouble(rs, 2), getDouble(rs, 3), getDouble(rs, 4), getDouble(rs, 5), rs.getLong(6));
+            }
+        }
+        return bars;
+    }
+
+    /**
+     * Copies the text blobs of the {@code stock_data} table kept by {@link DatabaseHelper} in the same file,
+     * skipping symbols that are already stored. Returns the number of symbols copied.
+     */
+    public synchronized int importLegacy() throws SQLException {
+        try (Statement stmt = mConnection.createStatement();
+             ResultSet tables = stmt.executeQuery("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'stock_data'")) {
+            if (!tables.next()) {
+                return 0;
+            }
+        }
+        // Only blobs of symbols that aren't stored yet are parsed, so importing again is cheap
+        List<DoubleSeries> legacy = new ArrayList<>();
+        try (Statement stmt = mConnection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT symbol, data FROM stock_data")) {
+            while (rs.next()) {
+                String symbol = rs.getString(1);
+                if (!contains(symbol)) {
+                    legacy.add(DatabaseHelper.parseSeries(rs.getString(2), symbol));
+                }
+            }
+        }
+        for (DoubleSeries series : legacy) {
+            insert(series);
+        }
+        return legacy.size();
+    }
+
+    @Override public synchronized void close() {
+        try {
+            for (PreparedStatement stmt : mStatements.values()) {
+                stmt.close();
+            }
+            mStatements.clear();
+            mConnection.close();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private PreparedStatement statement(String sql) throws SQLException {
+        PreparedStatement stmt = mStatements.get(sql);
+        if (stmt == null) {
+            stmt = mConnection.prepareStatement(sql);
+            mStatements.put(sql, stmt);
+        }
+        return stmt;
+    }
+
+    private interface BatchWriter {
+        void write(PreparedStatement stmt) throws SQLException;
+    }
+
+    // Runs the writer in one transaction; with the default autocommit each row would be its own transaction
+    private void write(String sql, BatchWriter writer) throws SQLException {
+        PreparedStatement stmt = statement(sql);
+        mConnection.setAutoCommit(false);
+        try {
+            writer.write(stmt);
+            stmt.executeBatch();
+            mConnection.commit();
+        } catch (SQLException | RuntimeException e) {
+            stmt.clearBatch();
+            mConnection.rollback();
+            throw e;
+        } finally {
+            mConnection.setAutoCommit(true);
+        }
+    }
+
+    private static int addBatch(PreparedStatement stmt, int count) throws SQLException {
+        stmt.addBatch();
+        if (++count % BATCH_SIZE == 0) {
+            stmt.executeBatch();
+        }
+        return count;
+    }
+
+    private static void bind(PreparedStatement stmt, String symbol, long epochDay, double open, double high, double low, double close, Long volume) throws SQLException {
+        stmt.setString(1, symbol);
+        stmt.setLong(2, epochDay);
+        setDouble(stmt, 3, open);
+        setDouble(stmt, 4, high);
+        setDouble(stmt, 5, low);
+        setDouble(stmt, 6, close);
+        if (volume == null) {
+            stmt.setNull(7, Types.INTEGER);
+        } else {
+            stmt.setLong(7, volume);
+        }
+    }
+
+    private static void bindRange(PreparedStatement stmt, String symbol, LocalDate from, LocalDate to) throws SQLException {
+        stmt.setString(1, symbol);
+        stmt.setLong(2, from.toEpochDay());
+        stmt.setLong(3, to.toEpochDay());
+    }
+
+    private static void setDouble(PreparedStatement stmt, int index, double value) throws SQLException {
+        if (Double.isNaN(value)) {
+            stmt.setNull(index, Types.REAL);
+        } else {
+            stmt.setDouble(index, value);
+        }
+    }
+
+    private static double getDouble(ResultSet rs, int index) throws SQLException {
+        double value = rs.getDouble(index);
+        return rs.wasNull() ? Double.NaN : value;
+    }
+
+    private static long epochDay(long epochMillis) {
+        return Math.floorDiv(epochMillis, MILLIS_PER_DAY);
+    }
+}
@@ -0,0 +1,96 @@
+package org.lst.trading.lib.util;
+
+import org.lst.trading.lib.series.DoubleSeries;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.lst.trading.lib.util.Util.check;
+
+/**
+ * Brings stored prices up to date by fetching only the days after the last stored day of each symbol and
+ * appending them. Symbols without stored prices get their full history.
+ */
+public class PriceRefresher {
+    private static final Logger log = LoggerFactory.getLogger(PriceRefresher.class);
+
+    private final HistoricalPriceService service;
+    private final PriceDatabase db;
+    private Clock clock = Clock.systemUTC();
+    private int maxConcurrency = 1;
+
+    public PriceRefresher(HistoricalPriceService service, PriceDatabase db) {
+        this.service = service;
+        this.db = db;
+    }
+
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Number of symbols {@link #refreshAll(List)} fetches at once, e.g. to keep a rate limited
+     * {@link BulkPriceFetcher} busy.
+     */
+    public void setMaxConcurrency(int maxConcurrency) {
+        check(maxConcurrency > 0);
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Fetches and stores the missing days of {@code symbol} and emits them, possibly as an empty series. Nothing
+     * is requested if the stored prices already reach today.
+     */
+    public Observable<DoubleSeries> refresh(String symbol) {
+        return Observable.defer(() -> {
+            LocalDate last;
+            try {
+                last = db.getLastDay(symbol);
+            } catch (SQLException e) {
+                return Observable.error(e);
+            }
+            if (last != null && !last.isBefore(LocalDate.now(clock))) {
+                return Observable.just(new DoubleSeries(symbol));
+            }
+            Observable<DoubleSeries> fetched = last == null ?
+                    service.getHistoricalAdjustedPrices(symbol) :
+                    service.getHistoricalAdjustedPrices(symbol, last);
+            return fetched.flatMap(series -> {
+                series.setName(symbol);
+                try {
+                    db.insert(series);
+                } catch (SQLException e) {
+                    return Observable.error(e);
+                }
+                log.debug("Appended {} days of {} after {}", series.size(), symbol, last);
+                return Observable.just(series);
+            });
+        });
+    }
+
+    /**
+     * Refreshes {@code symbol} and emits all of its stored prices, so the store can stand in for a
+     * {@link HistoricalPriceService}.
+     */
+    public Observable<DoubleSeries> getSeries(String symbol) {
+        return refresh(symbol).flatMap(added -> {
+            try {
+                return Observable.just(db.getSeries(symbol));
+            } catch (SQLException e) {
+                return Observable.error(e);
+            }
+        });
+    }
+
+    /**
+     * Refreshes the symbols, emitting the appended days of each as it completes.
+     */
+    public Observable<DoubleSeries> refreshAll(List<String> symbols) {
+        return Observable.from(symbols).flatMap(this::refresh, maxConcurrency);
+    }
+}
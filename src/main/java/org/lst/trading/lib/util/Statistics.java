@@ -21,6 +21,40 @@ public class Statistics {
         return StatUtils.mean(dailyReturns) / Math.sqrt(StatUtils.variance(dailyReturns)) * Math.sqrt(250);
     }
 
+    /**
+     * Bias corrected variance of {@code values[begin, begin + length)}, the same as
+     * {@link StatUtils#variance(double[], int, int)} without the objects it allocates per call.
+     */
+    public static double variance(double[] values, int begin, int length) {
+        if (length == 0) {
+            return Double.NaN;
+        }
+        if (length == 1) {
+            return 0;
+        }
+
+        int end = begin + length;
+        double sum = 0;
+        for (int i = begin; i < end; i++) {
+            sum += values[i];
+        }
+        double mean = sum / length;
+        double correction = 0;
+        for (int i = begin; i < end; i++) {
+            correction += values[i] - mean;
+        }
+        mean += correction / length;
+
+        double squares = 0;
+        double deviations = 0;
+        for (int i = begin; i < end; i++) {
+            double deviation = values[i] - mean;
+            squares += deviation * deviation;
+            deviations += deviation;
+        }
+        return (squares - deviations * deviations / length) / (length - 1.0);
+    }
+
     public static double[] returns(double[] series) {
         if (series.length <= 1) {
             return new double[0];
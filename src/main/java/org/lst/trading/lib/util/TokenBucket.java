@@ -0,0 +1,41 @@
+package org.lst.trading.lib.util;
+
+import java.time.Duration;
+
+import static org.lst.trading.lib.util.Util.check;
+
+/**
+ * Token bucket rate limiter that hands out reservations instead of blocking: {@link #reserve()} takes a token
+ * and returns how long the caller has to wait before using it. The bucket refills {@code permits} tokens
+ * evenly over {@code period} and holds at most {@code burst} of them, so up to {@code burst} requests go out
+ * at once and the long-run rate never exceeds the quota.
+ */
+public class TokenBucket {
+    private final double capacity;
+    private final double nanosPerToken;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(int permits, Duration period) {
+        this(permits, period, permits);
+    }
+
+    public TokenBucket(int permits, Duration period, int burst) {
+        check(permits > 0 && burst > 0 && !period.isNegative() && !period.isZero());
+        capacity = burst;
+        nanosPerToken = (double) period.toNanos() / permits;
+        tokens = burst;
+        lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Takes a token, going into debt if none is left, and returns the nanoseconds until it may be used.
+     */
+    public synchronized long reserve() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) / nanosPerToken);
+        lastRefill = now;
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens * nanosPerToken);
+    }
+}
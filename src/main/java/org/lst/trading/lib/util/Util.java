@@ -1,6 +1,8 @@
 package org.lst.trading.lib.util;
 
 
+import org.lst.trading.lib.csv.CsvOutput;
+import org.lst.trading.lib.series.ColumnarStore;
 import org.lst.trading.lib.series.MultipleDoubleSeries;
 
 import java.io.File;
@@ -9,18 +11,39 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
-import static java.util.stream.Collectors.joining;
-
 public class Util {
 
     public static Path writeCsv(MultipleDoubleSeries series) {
-        String data =
-            "date," + series.getNames().stream().collect(joining(",")) + "\n" +
-                series.stream().map(
-                    e -> e.getInstant() + "," + e.getItem().stream().map(Object::toString).collect(joining(","))
-                ).collect(joining("\n"));
+        try {
+            return writeCsv(series, Paths.get(File.createTempFile("out-", ".csv").getAbsolutePath()));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-        return writeStringToTempFile(data);
+    /**
+     * Streams the series to {@code path} row by row, with a {@code date} column followed by one column per
+     * series.
+     */
+    public static Path writeCsv(MultipleDoubleSeries series, Path path) {
+        ColumnarStore store = series.getStore();
+        try (CsvOutput out = CsvOutput.open(path)) {
+            out.text("date");
+            for (String name : series.getNames()) {
+                out.text(name);
+            }
+            out.endRow();
+            for (int row = 0; row < store.size(); row++) {
+                out.instant(store.getTime(row));
+                for (int column = 0; column < store.getColumnCount(); column++) {
+                    out.number(store.get(row, column));
+                }
+                out.endRow();
+            }
+            return path;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     public static Path writeStringToTempFile(String content) {
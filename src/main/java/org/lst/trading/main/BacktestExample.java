@@ -1,32 +1,52 @@
 package org.lst.trading.main;
 
 import org.lst.trading.lib.backtest.Backtest;
+import org.lst.trading.lib.csv.StreamingCsvWriter;
+import org.lst.trading.lib.model.ClosedOrder;
 import org.lst.trading.lib.model.TradingStrategy;
 import org.lst.trading.lib.series.DoubleSeries;
 import org.lst.trading.lib.series.MultipleDoubleSeries;
-import org.lst.trading.lib.series.TimeSeries;
 import org.lst.trading.lib.util.AlphaVantageHistoricalPriceService;
-import org.lst.trading.lib.util.DatabaseHelper;
+import org.lst.trading.lib.util.CachingHistoricalPriceService;
 import org.lst.trading.lib.util.HistoricalPriceService;
+import org.lst.trading.lib.util.PriceDatabase;
+import org.lst.trading.lib.util.PriceRefresher;
 import org.lst.trading.lib.util.Util;
 import org.lst.trading.strategy.kalman.CointegrationTradingStrategy;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.time.Instant;
-import java.util.ArrayList;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.Properties;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 import static java.lang.String.format;
+import static org.lst.trading.lib.csv.StreamingCsvWriter.doubleColumn;
+import static org.lst.trading.lib.csv.StreamingCsvWriter.instantColumn;
+import static org.lst.trading.lib.csv.StreamingCsvWriter.longColumn;
+import static org.lst.trading.lib.csv.StreamingCsvWriter.textColumn;
 
 public class BacktestExample {
     private static final Logger LOGGER = Logger.getLogger(BacktestExample.class.getName());
     private static final String CONFIG_FILE = "config.properties";
     private static final String API_KEY_PROPERTY = "alphavantantage.apikey";
+    private static final Path CACHE_DIR = Paths.get("price-cache");
+    private static final List<StreamingCsvWriter.Column<ClosedOrder>> ORDER_COLUMNS = Arrays.asList(
+            longColumn("id", ClosedOrder::getId),
+            longColumn("amount", o -> Math.abs(o.getAmount())),
+            textColumn("side", o -> o.isLong() ? "Buy" : "Sell"),
+            textColumn("instrument", ClosedOrder::getInstrument),
+            instantColumn("from", ClosedOrder::getOpenInstant),
+            instantColumn("to", ClosedOrder::getCloseInstant),
+            doubleColumn("open", ClosedOrder::getOpenPrice),
+            doubleColumn("close", ClosedOrder::getClosePrice),
+            doubleColumn("pl", ClosedOrder::getPl));
     private static String alphaVantageApiKey;
     private TradingStrategy strategy;
     private int deposit;
@@ -41,7 +61,7 @@ public class BacktestExample {
         }
     }
 
-    private void runBacktest() throws IOException {
+    private void runBacktest() throws IOException, SQLException {
         String x = "AAPL";
         String y = "AMZN";
         strategy = new CointegrationTradingStrategy(x, y);
@@ -56,55 +76,25 @@ public class BacktestExample {
         displayResults(result, priceSeries);
     }
 
-    private MultipleDoubleSeries getPriceSeries(HistoricalPriceService finance, String x, String y) throws IOException {
-        DatabaseHelper db = new DatabaseHelper();
+    private MultipleDoubleSeries getPriceSeries(HistoricalPriceService finance, String x, String y) throws IOException, SQLException {
+        try (PriceDatabase db = new PriceDatabase()) {
+            db.importLegacy();
+            PriceRefresher refresher = new PriceRefresher(finance, db);
+            HistoricalPriceService cached = new CachingHistoricalPriceService(refresher::getSeries, CACHE_DIR);
 
-        DoubleSeries seriesX = fetchData(finance, db, x);
-        DoubleSeries seriesY = fetchData(finance, db, y);
+            DoubleSeries seriesX = fetchData(cached, x);
+            DoubleSeries seriesY = fetchData(cached, y);
 
-        return new MultipleDoubleSeries(seriesX, seriesY);
-    }
-
-    private DoubleSeries fetchData(HistoricalPriceService finance, DatabaseHelper db, String symbol) throws IOException {
-        if (!db.isDataPresent(symbol)) {
-            DoubleSeries series = finance.getHistoricalAdjustedPrices(symbol).toBlocking().first();
-            db.insertData(symbol, doubleSeriesToString(series));
-            return series;
-        } else {
-            String data = db.getData(symbol);
-            return stringToDoubleSeries(data, symbol);
-        }
-    }
-
-
-    private String doubleSeriesToString(DoubleSeries series) {
-        StringBuilder sb = new StringBuilder();
-        for (DoubleSeries.Entry<Double> entry : series) {
-            sb.append(entry.getInstant().toString()).append(",").append(entry.getItem()).append("\n");
+            return new MultipleDoubleSeries(seriesX, seriesY);
         }
-        return sb.toString();
     }
 
-    private DoubleSeries stringToDoubleSeries(String data, String seriesName) {
-        List<DoubleSeries.Entry<Double>> entries = new ArrayList<>();
-        String[] lines = data.split("\n");
-
-        for (String line : lines) {
-            String[] parts = line.split(",");
-            Instant instant = Instant.parse(parts[0]);
-            double value = Double.parseDouble(parts[1]);
-            entries.add(new DoubleSeries.Entry<>(value, instant));
-        }
-
-        return new DoubleSeries(entries, seriesName);
+    private DoubleSeries fetchData(HistoricalPriceService finance, String symbol) {
+        return finance.getHistoricalAdjustedPrices(symbol).toBlocking().first();
     }
 
 
-
-    private void displayResults(Backtest.Result result, MultipleDoubleSeries priceSeries) {
-        String orders = formatOrders(result);
-        LOGGER.info(orders);
-
+    private void displayResults(Backtest.Result result, MultipleDoubleSeries priceSeries) throws IOException {
         int days = priceSeries.size();
         LOGGER.info("\nBacktest result of " + strategy.getClass() + ": " + strategy);
         LOGGER.info("Prices: " + priceSeries);
@@ -114,17 +104,16 @@ public class BacktestExample {
         LOGGER.info(format(Locale.US, "P/L = %.2f, Final value = %.2f, Result = %.2f%%, Annualized = %.2f%%, Sharpe (rf=0%%) = %.2f",
                 result.getPl(), result.getFinalValue(), result.getReturn() * 100, result.getReturn() / (days / 251.) * 100, result.getSharpe()));
 
-        LOGGER.info("Orders: " + Util.writeStringToTempFile(orders));
+        LOGGER.info("Orders: " + writeOrders(result));
         LOGGER.info("Statistics: " + Util.writeCsv(new MultipleDoubleSeries(result.getPlHistory(), result.getMarginHistory())));
     }
 
-    private static String formatOrders(Backtest.Result result) {
-        return result.getOrders().stream()
-                .map(order -> format(Locale.US, "%d,%d,%s,%s,%s,%s,%f,%f,%f",
-                        order.getId(), Math.abs(order.getAmount()), order.isLong() ? "Buy" : "Sell",
-                        order.getInstrument(), order.getOpenInstant(), order.getCloseInstant(),
-                        order.getOpenPrice(), order.getClosePrice(), order.getPl()))
-                .collect(Collectors.joining("\n", "id,amount,side,instrument,from,to,open,close,pl\n", ""));
+    private static Path writeOrders(Backtest.Result result) throws IOException {
+        Path path = Files.createTempFile("orders-", ".csv");
+        try (StreamingCsvWriter<ClosedOrder> writer = StreamingCsvWriter.open(path, ORDER_COLUMNS)) {
+            writer.writeAll(result.getOrders());
+        }
+        return path;
     }
 
     private static void loadProperties() {
@@ -0,0 +1,47 @@
+package org.lst.trading.main;
+
+import org.lst.trading.lib.util.DatabaseHelper;
+import org.lst.trading.strategy.kalman.PairPreScreen;
+import org.lst.trading.strategy.kalman.PairQualityIndex;
+import org.lst.trading.strategy.kalman.PairScanner;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+import static java.lang.String.format;
+
+public class PairScanExample {
+    private static final Logger LOGGER = Logger.getLogger(PairScanExample.class.getName());
+    private static final int TOP_K = 20;
+    private static final Path INDEX = Paths.get("pair-quality.csv");
+
+    public static void main(String[] args) throws IOException {
+        PairScanner scanner = PairScanner.fromDatabase(new DatabaseHelper());
+        boolean byDrawdown = args.length > 0 && args[0].equals("drawdown");
+        boolean all = args.length > 1 && args[1].equals("all");
+
+        PairPreScreen preScreen = new PairPreScreen(PairQualityIndex.load(INDEX));
+        if (!all) {
+            scanner.setPreScreen(preScreen);
+        }
+
+        LOGGER.info("Scanning " + scanner.getSymbols().size() + " symbols");
+        List<PairScanner.PairResult> top = scanner.scan(TOP_K, byDrawdown ? PairScanner.BY_DRAWDOWN : PairScanner.BY_SHARPE,
+                r -> LOGGER.fine(r.toString()));
+
+        StringBuilder sb = new StringBuilder("x,y,days,orders,pl,return,sharpe,maxdd\n");
+        for (PairScanner.PairResult r : top) {
+            sb.append(format(Locale.US, "%s,%s,%d,%d,%.2f,%.4f,%.4f,%.4f%n",
+                    r.getX(), r.getY(), r.getDays(), r.getOrderCount(), r.getPl(), r.getReturn(), r.getSharpe(), r.getMaxDrawdownPercent()));
+        }
+        LOGGER.info(sb.toString());
+
+        if (!all) {
+            preScreen.getIndex().save(INDEX);
+        }
+    }
+}
@@ -25,6 +25,10 @@ public class MultipleTradingStrategy implements TradingStrategy {
         return mStrategies.size();
     }
 
+    @Override public int getMaxLookback() {
+        return mStrategies.stream().mapToInt(TradingStrategy::getMaxLookback).max().orElse(0);
+    }
+
     @Override public void onStart(TradingContext context) {
         mStrategies.forEach(t -> t.onStart(context));
     }
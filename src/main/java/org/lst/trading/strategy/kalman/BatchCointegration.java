@@ -0,0 +1,156 @@
+package org.lst.trading.strategy.kalman;
+
+import org.lst.trading.lib.util.Statistics;
+
+import java.util.Arrays;
+
+import static org.lst.trading.lib.util.Util.check;
+
+/**
+ * Many {@link Cointegration} models advanced together by a {@link BatchKalmanFilter}, with the entry and exit
+ * rules of {@link CointegrationTradingStrategy} evaluated for every pair after each tick. Position sizing is
+ * left to the caller: a pair enters on the first signal with a positive beta, and {@link #setPosition} can
+ * undo an entry the caller decided not to take.
+ */
+public class BatchCointegration {
+    public static final int NONE = 0;
+    public static final int ENTER_LONG = 1; // Buy y, sell x
+    public static final int ENTER_SHORT = 2; // Sell y, buy x
+    public static final int EXIT = 3;
+
+    private final BatchKalmanFilter filter;
+    private final int count;
+    private final double[] entryThreshold;
+
+    private final double[] errors; // ERROR_WINDOW recent errors per pair, ring ordered
+    private final int[] errorHead;
+    private final int[] steps;
+    private final double[] window = new double[CointegrationTradingStrategy.ERROR_WINDOW];
+
+    private final double[] previousAlpha;
+    private final double[] previousBeta;
+    private final int[] position; // 1 long y, -1 short y, 0 flat
+    private final int[] signal;
+
+    public BatchCointegration(double[] delta, double[] rVariance, double[] entryThreshold) {
+        check(delta.length == rVariance.length && delta.length == entryThreshold.length);
+        count = delta.length;
+        double[] processNoise = new double[count];
+        for (int i = 0; i < count; i++) {
+            processNoise[i] = delta[i] / (1 - delta[i]);
+        }
+        filter = new BatchKalmanFilter(processNoise, rVariance);
+        this.entryThreshold = entryThreshold.clone();
+        errors = new double[count * CointegrationTradingStrategy.ERROR_WINDOW];
+        errorHead = new int[count];
+        steps = new int[count];
+        previousAlpha = new double[count];
+        previousBeta = new double[count];
+        position = new int[count];
+        signal = new int[count];
+    }
+
+    public static BatchCointegration of(int count, double delta, double rVariance, double entryThreshold) {
+        double[] deltas = new double[count];
+        double[] rVariances = new double[count];
+        double[] thresholds = new double[count];
+        Arrays.fill(deltas, delta);
+        Arrays.fill(rVariances, rVariance);
+        Arrays.fill(thresholds, entryThreshold);
+        return new BatchCointegration(deltas, rVariances, thresholds);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public BatchKalmanFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Advances all pairs by one tick and computes their signals. Pairs with a NaN price skip the tick.
+     */
+    public void step(double[] x, double[] y) {
+        System.arraycopy(filter.alpha, 0, previousAlpha, 0, count);
+        System.arraycopy(filter.beta, 0, previousBeta, 0, count);
+        filter.step(x, y);
+
+        int size = CointegrationTradingStrategy.ERROR_WINDOW;
+        for (int i = 0; i < count; i++) {
+            signal[i] = NONE;
+            if (Double.isNaN(x[i]) || Double.isNaN(y[i])) {
+                continue;
+            }
+
+            double error = filter.innovation[i];
+            errors[i * size + errorHead[i]] = error;
+            errorHead[i] = errorHead[i] + 1 == size ? 0 : errorHead[i] + 1;
+            if (++steps[i] <= CointegrationTradingStrategy.WARMUP) {
+                continue;
+            }
+
+            if (position[i] == 0 && Math.abs(error) > entryThreshold[i] * recentDeviation(i)) {
+                if (previousBeta[i] > 0) {
+                    signal[i] = error < 0 ? ENTER_LONG : ENTER_SHORT;
+                    position[i] = error < 0 ? 1 : -1;
+                }
+            } else if (position[i] != 0 && (position[i] > 0 && error > 0 || position[i] < 0 && error < 0)) {
+                signal[i] = EXIT;
+                position[i] = 0;
+            }
+        }
+    }
+
+    // Same order as the strategy's window (newest first), so the deviation matches it exactly
+    private double recentDeviation(int i) {
+        int size = window.length;
+        int offset = i * size;
+        int index = errorHead[i];
+        for (int k = 0; k < size; k++) {
+            index = index == 0 ? size - 1 : index - 1;
+            window[k] = errors[offset + index];
+        }
+        return Math.sqrt(Statistics.variance(window, 0, window.length));
+    }
+
+    public int getSignal(int i) {
+        return signal[i];
+    }
+
+    public int getPosition(int i) {
+        return position[i];
+    }
+
+    public void setPosition(int i, int position) {
+        check(position >= -1 && position <= 1);
+        this.position[i] = position;
+    }
+
+    /**
+     * Alpha and beta as they were before the last tick, which is what the strategy sizes its orders with.
+     */
+    public double getPreviousAlpha(int i) {
+        return previousAlpha[i];
+    }
+
+    public double getPreviousBeta(int i) {
+        return previousBeta[i];
+    }
+
+    public double getAlpha(int i) {
+        return filter.alpha[i];
+    }
+
+    public double getBeta(int i) {
+        return filter.beta[i];
+    }
+
+    public double getError(int i) {
+        return filter.innovation[i];
+    }
+
+    public double getVariance(int i) {
+        return filter.innovationCovariance[i];
+    }
+}
@@ -0,0 +1,157 @@
+package org.lst.trading.strategy.kalman;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.lst.trading.lib.util.Util.check;
+
+/**
+ * Runs {@code count} independent {@link TwoStateKalmanFilter}s in lockstep. State, covariance and innovation
+ * of all filters are kept in structure-of-arrays form so a tick can be advanced with the JDK Vector API when
+ * {@code jdk.incubator.vector} is available (run with {@code --add-modules jdk.incubator.vector}); otherwise
+ * a scalar loop with the same arithmetic is used. Both produce the same values as {@link TwoStateKalmanFilter}.
+ */
+public class BatchKalmanFilter {
+    private static final Logger log = LoggerFactory.getLogger(BatchKalmanFilter.class);
+
+    interface Kernel {
+        void step(BatchKalmanFilter f, double[] x, double[] y, int from, int to);
+    }
+
+    static final Kernel SCALAR_KERNEL = BatchKalmanFilter::scalarStep;
+    static final Kernel VECTOR_KERNEL = loadVectorKernel();
+
+    final int count;
+    final double[] processNoise;
+    final double[] measurementVariance;
+
+    final double[] alpha;
+    final double[] beta;
+    final double[] p00;
+    final double[] p01;
+    final double[] p10;
+    final double[] p11;
+
+    final double[] innovation;
+    final double[] innovationCovariance;
+
+    private final Kernel kernel;
+
+    public BatchKalmanFilter(double[] processNoise, double[] measurementVariance) {
+        this(processNoise, measurementVariance, true);
+    }
+
+    public BatchKalmanFilter(double[] processNoise, double[] measurementVariance, boolean allowVector) {
+        check(processNoise.length == measurementVariance.length);
+        this.count = processNoise.length;
+        this.processNoise = processNoise.clone();
+        this.measurementVariance = measurementVariance.clone();
+        alpha = new double[count];
+        beta = new double[count];
+        p00 = new double[count];
+        p01 = new double[count];
+        p10 = new double[count];
+        p11 = new double[count];
+        innovation = new double[count];
+        innovationCovariance = new double[count];
+        kernel = allowVector && VECTOR_KERNEL != null ? VECTOR_KERNEL : SCALAR_KERNEL;
+    }
+
+    public static boolean isVectorAvailable() {
+        return VECTOR_KERNEL != null;
+    }
+
+    public boolean isVectorized() {
+        return kernel != SCALAR_KERNEL;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Advances every filter with its observation {@code (x[i], y[i])}. Filters whose observation has a NaN
+     * are left unchanged for this tick.
+     */
+    public void step(double[] x, double[] y) {
+        check(x.length >= count && y.length >= count);
+        boolean complete = true;
+        for (int i = 0; i < count; i++) {
+            if (Double.isNaN(x[i]) || Double.isNaN(y[i])) {
+                complete = false;
+                break;
+            }
+        }
+
+        if (complete) {
+            kernel.step(this, x, y, 0, count);
+        } else {
+            for (int i = 0; i < count; i++) {
+                if (!Double.isNaN(x[i]) && !Double.isNaN(y[i])) {
+                    scalarStep(this, x, y, i, i + 1);
+                }
+            }
+        }
+    }
+
+    public double getAlpha(int i) {
+        return alpha[i];
+    }
+
+    public double getBeta(int i) {
+        return beta[i];
+    }
+
+    public double getInnovation(int i) {
+        return innovation[i];
+    }
+
+    public double getInnovationCovariance(int i) {
+        return innovationCovariance[i];
+    }
+
+    // Mirrors TwoStateKalmanFilter.step
+    static void scalarStep(BatchKalmanFilter f, double[] xs, double[] ys, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double x = xs[i];
+            double q = f.processNoise[i];
+            double c00 = f.p00[i] + q;
+            double c01 = f.p01[i];
+            double c10 = f.p10[i];
+            double c11 = f.p11[i] + q;
+
+            double e = ys[i] - (f.alpha[i] + x * f.beta[i]);
+            double s = (c00 + x * c10) + (c01 + x * c11) * x + f.measurementVariance[i];
+
+            double inverse = 1.0 / s;
+            double k0 = (c00 + c01 * x) * inverse;
+            double k1 = (c10 + c11 * x) * inverse;
+            f.alpha[i] += k0 * e;
+            f.beta[i] += k1 * e;
+
+            double i00 = 1 - k0;
+            double i01 = 0 - k0 * x;
+            double i10 = 0 - k1;
+            double i11 = 1 - k1 * x;
+            f.p00[i] = i00 * c00 + i01 * c10;
+            f.p01[i] = i00 * c01 + i01 * c11;
+            f.p10[i] = i10 * c00 + i11 * c10;
+            f.p11[i] = i10 * c01 + i11 * c11;
+
+            f.innovation[i] = e;
+            f.innovationCovariance[i] = s;
+        }
+    }
+
+    private static Kernel loadVectorKernel() {
+        if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            return null;
+        }
+        try {
+            return (Kernel) Class.forName("org.lst.trading.strategy.kalman.VectorKalmanKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            log.debug("Vector API unavailable, using scalar Kalman kernel", e);
+            return null;
+        }
+    }
+}
@@ -9,13 +9,23 @@ import org.la4j.Matrix;
 public class Cointegration {
     private double delta;
     private double rVariance;
-    private KalmanFilter filter;
+    private KalmanFilter filter; // General matrix filter, only set when requested
+    private TwoStateKalmanFilter pairFilter;
     private final int numberOfObservations = 2;
 
     public Cointegration(double delta, double rVariance) {
+        this(delta, rVariance, false);
+    }
+
+    public Cointegration(double delta, double rVariance, boolean useMatrixFilter) {
         this.delta = delta;
         this.rVariance = rVariance;
 
+        if (!useMatrixFilter) {
+            pairFilter = new TwoStateKalmanFilter(delta / (1 - delta), rVariance);
+            return;
+        }
+
         Matrix processNoise = Matrix.identity(numberOfObservations).multiply(delta / (1 - delta));
         Matrix stateTransitionMatrix = Matrix.identity(numberOfObservations);
 
@@ -30,23 +40,27 @@ public class Cointegration {
     }
 
     public void step(double x, double y) {
+        if (pairFilter != null) {
+            pairFilter.step(x, y);
+            return;
+        }
         filter.setExtractionMatrix(Matrix.from1DArray(1, 2, new double[]{1, x}));
         filter.step(Matrix.constant(1, 1, y));
     }
 
     public double getAlpha() {
-        return filter.getState().getRow(0).get(0);
+        return pairFilter != null ? pairFilter.getAlpha() : filter.getState().getRow(0).get(0);
     }
 
     public double getBeta() {
-        return filter.getState().getRow(1).get(0);
+        return pairFilter != null ? pairFilter.getBeta() : filter.getState().getRow(1).get(0);
     }
 
     public double getVariance() {
-        return filter.getInnovationCovariance().get(0, 0);
+        return pairFilter != null ? pairFilter.getInnovationCovariance() : filter.getInnovationCovariance().get(0, 0);
     }
 
     public double getError() {
-        return filter.getInnovation().get(0, 0);
+        return pairFilter != null ? pairFilter.getInnovation() : filter.getInnovation().get(0, 0);
     }
 }
@@ -1,12 +1,13 @@
 package org.lst.trading.strategy.kalman;
 
 import lombok.Getter;
-import org.apache.commons.math3.stat.StatUtils;
+import lombok.Setter;
 import org.lst.trading.lib.model.Order;
 import org.lst.trading.lib.model.TradingContext;
+import org.lst.trading.lib.series.DoubleRingBuffer;
 import org.lst.trading.lib.series.DoubleSeries;
 import org.lst.trading.lib.series.MultipleDoubleSeries;
-import org.lst.trading.lib.series.TimeSeries;
+import org.lst.trading.lib.util.Statistics;
 import org.lst.trading.lib.util.Util;
 import org.lst.trading.strategy.AbstractTradingStrategy;
 import org.slf4j.Logger;
@@ -15,9 +16,22 @@ import org.slf4j.LoggerFactory;
 @Getter
 public class CointegrationTradingStrategy extends AbstractTradingStrategy {
     private static final Logger log = LoggerFactory.getLogger(CointegrationTradingStrategy.class);
+    static final int ERROR_WINDOW = 15;
+    static final int WARMUP = 30;
 
     private boolean reinvest = false;
 
+    @Setter
+    private double delta = 1e-10;
+    @Setter
+    private double rVariance = 1e-7;
+    // Entry when the filter error exceeds this many standard deviations of the recent errors
+    @Setter
+    private double entryThreshold = 1;
+    // Keeps the per-tick filter series for inspection; scans that only need the result can turn it off
+    @Setter
+    private boolean recordSeries = true;
+
     private final String xSymbol;
     private final String ySymbol;
     private TradingContext context;
@@ -31,6 +45,10 @@ public class CointegrationTradingStrategy extends AbstractTradingStrategy {
     private DoubleSeries varianceSeries;
     private DoubleSeries modelSeries;
 
+    private DoubleRingBuffer recentErrors;
+    private double[] recentErrorsBuffer;
+    private int ticks;
+
     private Order xOrder;
     private Order yOrder;
 
@@ -47,7 +65,7 @@ public class CointegrationTradingStrategy extends AbstractTradingStrategy {
     @Override
     public void onStart(TradingContext context) {
         this.context = context;
-        this.cointegration = new Cointegration(1e-10, 1e-7);
+        this.cointegration = new Cointegration(delta, rVariance);
         initializeSeries();
     }
 
@@ -59,6 +77,9 @@ public class CointegrationTradingStrategy extends AbstractTradingStrategy {
         errorSeries = new DoubleSeries("error");
         varianceSeries = new DoubleSeries("variance");
         modelSeries = new DoubleSeries("model");
+        recentErrors = new DoubleRingBuffer(ERROR_WINDOW);
+        recentErrorsBuffer = new double[ERROR_WINDOW];
+        ticks = 0;
     }
 
     @Override
@@ -69,21 +90,23 @@ public class CointegrationTradingStrategy extends AbstractTradingStrategy {
         double beta = cointegration.getBeta();
 
         cointegration.step(priceX, priceY);
-        alphaSeries.add(alpha, context.getTime());
-        betaSeries.add(beta, context.getTime());
-        xSeries.add(priceX, context.getTime());
-        ySeries.add(priceY, context.getTime());
-        errorSeries.add(cointegration.getError(), context.getTime());
-        varianceSeries.add(cointegration.getVariance(), context.getTime());
-
         double currentError = cointegration.getError();
-        modelSeries.add(beta * priceX + alpha, context.getTime());
+        if (recordSeries) {
+            alphaSeries.add(alpha, context.getTime());
+            betaSeries.add(beta, context.getTime());
+            xSeries.add(priceX, context.getTime());
+            ySeries.add(priceY, context.getTime());
+            errorSeries.add(currentError, context.getTime());
+            varianceSeries.add(cointegration.getVariance(), context.getTime());
+            modelSeries.add(beta * priceX + alpha, context.getTime());
+        }
+        recentErrors.add(currentError);
 
-        if (errorSeries.size() > 30) {
-            double[] recentErrors = errorSeries.reversedStream().mapToDouble(TimeSeries.Entry::getItem).limit(15).toArray();
-            double standardDeviation = Math.sqrt(StatUtils.variance(recentErrors));
+        if (++ticks > WARMUP) {
+            int count = recentErrors.copyTo(recentErrorsBuffer, ERROR_WINDOW);
+            double standardDeviation = Math.sqrt(Statistics.variance(recentErrorsBuffer, 0, count));
 
-            if (yOrder == null && Math.abs(currentError) > standardDeviation) {
+            if (yOrder == null && Math.abs(currentError) > entryThreshold * standardDeviation) {
                 double portfolioValue = reinvest ? context.getNetValue() : context.getInitialFunds();
                 double baseAmount = (portfolioValue * getWeight() * 0.5 * Math.min(4, context.getLeverage())) / (priceY + beta * priceX);
 
@@ -106,7 +129,9 @@ public class CointegrationTradingStrategy extends AbstractTradingStrategy {
 
     @Override
     public void onEnd() {
-        log.debug("Kalman filter statistics: " + Util.writeCsv(new MultipleDoubleSeries(xSeries, ySeries, alphaSeries, betaSeries, errorSeries, varianceSeries, modelSeries)));
+        if (recordSeries && log.isDebugEnabled()) {
+            log.debug("Kalman filter statistics: " + Util.writeCsv(new MultipleDoubleSeries(xSeries, ySeries, alphaSeries, betaSeries, errorSeries, varianceSeries, modelSeries)));
+        }
     }
 
     @Override
@@ -0,0 +1,264 @@
+package org.lst.trading.strategy.kalman;
+
+import org.lst.trading.lib.series.ColumnarStore;
+import org.lst.trading.strategy.kalman.PairQualityIndex.PairQuality;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.lst.trading.lib.util.Util.check;
+
+/**
+ * Cheap statistical filter run before full backtests. For every ordered pair it fits the Engle-Granger
+ * regression {@code log y = a + beta * log x}, then computes the augmented Dickey-Fuller statistic and the
+ * mean reversion half-life of its residuals. Work runs in parallel straight on primitive log-price columns,
+ * and results are cached in a {@link PairQualityIndex} so unchanged pairs aren't recomputed.
+ */
+public class PairPreScreen {
+    private final PairQualityIndex index;
+
+    private int lags = 1;
+    private double maxAdf = -3.34; // About 5% for a two variable Engle-Granger test
+    private double minHalfLife = 1;
+    private double maxHalfLife = 250;
+    private int minDays = 250;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    public PairPreScreen() {
+        this(new PairQualityIndex());
+    }
+
+    public PairPreScreen(PairQualityIndex index) {
+        this.index = index;
+    }
+
+    public PairQualityIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Number of lagged differences in the ADF regression.
+     */
+    public void setLags(int lags) {
+        check(lags >= 0);
+        this.lags = lags;
+    }
+
+    public void setMaxAdf(double maxAdf) {
+        this.maxAdf = maxAdf;
+    }
+
+    public void setHalfLife(double minHalfLife, double maxHalfLife) {
+        this.minHalfLife = minHalfLife;
+        this.maxHalfLife = maxHalfLife;
+    }
+
+    public void setMinDays(int minDays) {
+        this.minDays = minDays;
+    }
+
+    public void setParallelism(int parallelism) {
+        check(parallelism > 0);
+        this.parallelism = parallelism;
+    }
+
+    public boolean passes(PairQuality quality) {
+        return quality.getDays() >= minDays
+            && quality.getBeta() > 0
+            && quality.getAdf() <= maxAdf
+            && quality.getHalfLife() >= minHalfLife
+            && quality.getHalfLife() <= maxHalfLife;
+    }
+
+    /**
+     * Screens every ordered pair of the columns of {@code prices} and returns the pairs that pass, encoded as
+     * {@code x * symbols.size() + y}.
+     */
+    public long[] screen(List<String> symbols, ColumnarStore prices) {
+        int n = symbols.size();
+        check(prices.getColumnCount() == n);
+
+        double[][] logPrices = new double[n][];
+        long[] fingerprints = new long[n];
+        for (int c = 0; c < n; c++) {
+            logPrices[c] = prices.copyColumn(c);
+            for (int row = 0; row < logPrices[c].length; row++) {
+                logPrices[c][row] = Math.log(logPrices[c][row]);
+            }
+            fingerprints[c] = fingerprint(prices, c);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.submit(() -> IntStream.range(0, n).parallel().boxed().flatMapToLong(x -> {
+                List<Long> passed = new ArrayList<>();
+                for (int y = 0; y < n; y++) {
+                    if (x == y) {
+                        continue;
+                    }
+                    PairQuality quality = index.get(symbols.get(x), symbols.get(y), fingerprints[x], fingerprints[y], lags);
+                    if (quality == null) {
+                        quality = evaluate(symbols.get(x), symbols.get(y), fingerprints[x], fingerprints[y], logPrices[x], logPrices[y]);
+                        // Whether a history is too short depends on minDays, not just the data, so those aren't cached
+                        if (quality.getDays() >= requiredDays()) {
+                            index.put(quality);
+                        }
+                    }
+                    if (passes(quality)) {
+                        passed.add((long) x * n + y);
+                    }
+                }
+                return passed.stream().mapToLong(Long::longValue);
+            }).sorted().toArray()).join();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    PairQuality evaluate(String xSymbol, String ySymbol, long xFingerprint, long yFingerprint, double[] x, double[] y) {
+        // Engle-Granger regression over the rows where both prices are present
+        int days = 0;
+        double sx = 0, sy = 0, sxx = 0, sxy = 0;
+        for (int row = 0; row < x.length; row++) {
+            if (!Double.isNaN(x[row]) && !Double.isNaN(y[row])) {
+                days++;
+                sx += x[row];
+                sy += y[row];
+                sxx += x[row] * x[row];
+                sxy += x[row] * y[row];
+            }
+        }
+        if (days < requiredDays()) {
+            return new PairQuality(xSymbol, ySymbol, xFingerprint, yFingerprint, lags, days, Double.NaN, Double.NaN, Double.NaN);
+        }
+        double beta = (days * sxy - sx * sy) / (days * sxx - sx * sx);
+        double alpha = (sy - beta * sx) / days;
+
+        // ADF regression: de(t) = gamma * e(t-1) + sum phi(i) * de(t-i), accumulated as normal equations.
+        // The half-life regression de(t) = c + lambda * e(t-1) shares the same pass.
+        int k = lags + 1;
+        double[][] xtx = new double[k][k];
+        double[] xty = new double[k];
+        double yty = 0;
+        double[] regressors = new double[k];
+        double[] lagged = new double[Math.max(lags, 1)];
+        int observations = 0;
+        double hn = 0, he = 0, hd = 0, hee = 0, hed = 0;
+
+        double previous = Double.NaN;
+        int seen = 0;
+        for (int row = 0; row < x.length; row++) {
+            if (Double.isNaN(x[row]) || Double.isNaN(y[row])) {
+                continue;
+            }
+            double e = y[row] - alpha - beta * x[row];
+            if (seen > 0) {
+                double d = e - previous;
+                hn++;
+                he += previous;
+                hd += d;
+                hee += previous * previous;
+                hed += previous * d;
+
+                if (seen > lags) {
+                    regressors[0] = previous;
+                    for (int i = 0; i < lags; i++) {
+                        regressors[i + 1] = lagged[i];
+                    }
+                    for (int i = 0; i < k; i++) {
+                        xty[i] += regressors[i] * d;
+                        for (int j = 0; j < k; j++) {
+                            xtx[i][j] += regressors[i] * regressors[j];
+                        }
+                    }
+                    yty += d * d;
+                    observations++;
+                }
+                for (int i = lags - 1; i > 0; i--) {
+                    lagged[i] = lagged[i - 1];
+                }
+                if (lags > 0) {
+                    lagged[0] = d;
+                }
+            }
+            previous = e;
+            seen++;
+        }
+
+        double adf = Double.NaN;
+        double[] coefficients = solve(xtx, xty);
+        double[] unit = new double[k];
+        unit[0] = 1;
+        double[] inverseColumn = solve(xtx, unit);
+        if (coefficients != null && inverseColumn != null && observations > k) {
+            double ssr = yty;
+            for (int i = 0; i < k; i++) {
+                ssr -= coefficients[i] * xty[i];
+            }
+            double variance = ssr / (observations - k);
+            adf = coefficients[0] / Math.sqrt(variance * inverseColumn[0]);
+        }
+
+        double lambda = (hn * hed - he * hd) / (hn * hee - he * he);
+        double halfLife = lambda < 0 ? -Math.log(2) / Math.log(1 + lambda) : Double.POSITIVE_INFINITY;
+
+        return new PairQuality(xSymbol, ySymbol, xFingerprint, yFingerprint, lags, days, beta, adf, halfLife);
+    }
+
+    private int requiredDays() {
+        return Math.max(minDays, lags + 3);
+    }
+
+    // Gaussian elimination with partial pivoting on a copy; null when singular
+    static double[] solve(double[][] a, double[] b) {
+        int n = b.length;
+        double[][] m = new double[n][n + 1];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(a[i], 0, m[i], 0, n);
+            m[i][n] = b[i];
+        }
+        for (int col = 0; col < n; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < n; row++) {
+                if (Math.abs(m[row][col]) > Math.abs(m[pivot][col])) {
+                    pivot = row;
+                }
+            }
+            if (m[pivot][col] == 0 || Double.isNaN(m[pivot][col])) {
+                return null;
+            }
+            double[] tmp = m[col];
+            m[col] = m[pivot];
+            m[pivot] = tmp;
+            for (int row = col + 1; row < n; row++) {
+                double f = m[row][col] / m[col][col];
+                for (int j = col; j <= n; j++) {
+                    m[row][j] -= f * m[col][j];
+                }
+            }
+        }
+        double[] x = new double[n];
+        for (int i = n - 1; i >= 0; i--) {
+            double s = m[i][n];
+            for (int j = i + 1; j < n; j++) {
+                s -= m[i][j] * x[j];
+            }
+            x[i] = s / m[i][i];
+        }
+        return x;
+    }
+
+    static long fingerprint(ColumnarStore prices, int column) {
+        long hash = 1125899906842597L;
+        for (int row = 0; row < prices.size(); row++) {
+            double value = prices.get(row, column);
+            if (!Double.isNaN(value)) {
+                hash = 31 * hash + prices.getTime(row);
+                hash = 31 * hash + Double.doubleToLongBits(value);
+            }
+        }
+        return hash;
+    }
+}
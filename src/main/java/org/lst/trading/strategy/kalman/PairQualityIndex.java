@@ -0,0 +1,167 @@
+package org.lst.trading.strategy.kalman;
+
+import org.lst.trading.lib.csv.CsvReader;
+import org.lst.trading.lib.csv.CsvWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static org.lst.trading.lib.csv.CsvWriter.column;
+
+/**
+ * Persistent cache of {@link PairQuality} statistics keyed by ordered pair. Each entry records fingerprints
+ * of the two price histories and the number of ADF lags it was computed with, so a rescan only recomputes
+ * pairs whose data or lags changed.
+ */
+public class PairQualityIndex {
+    public static class PairQuality {
+        private final String x;
+        private final String y;
+        private final long xFingerprint;
+        private final long yFingerprint;
+        private final int lags;
+        private final int days;
+        private final double beta;
+        private final double adf;
+        private final double halfLife;
+
+        public PairQuality(String x, String y, long xFingerprint, long yFingerprint, int lags, int days, double beta, double adf, double halfLife) {
+            this.x = x;
+            this.y = y;
+            this.xFingerprint = xFingerprint;
+            this.yFingerprint = yFingerprint;
+            this.lags = lags;
+            this.days = days;
+            this.beta = beta;
+            this.adf = adf;
+            this.halfLife = halfLife;
+        }
+
+        public String getX() {
+            return x;
+        }
+
+        public String getY() {
+            return y;
+        }
+
+        public long getXFingerprint() {
+            return xFingerprint;
+        }
+
+        public long getYFingerprint() {
+            return yFingerprint;
+        }
+
+        /**
+         * Lagged differences in the ADF regression the statistics were computed with.
+         */
+        public int getLags() {
+            return lags;
+        }
+
+        public int getDays() {
+            return days;
+        }
+
+        /**
+         * Hedge ratio of the Engle-Granger regression {@code log y = a + beta * log x}.
+         */
+        public double getBeta() {
+            return beta;
+        }
+
+        /**
+         * Augmented Dickey-Fuller t-statistic of the regression residuals; more negative is more stationary.
+         */
+        public double getAdf() {
+            return adf;
+        }
+
+        /**
+         * Half-life of mean reversion of the residuals in days, infinite when they don't revert.
+         */
+        public double getHalfLife() {
+            return halfLife;
+        }
+
+        @Override public String toString() {
+            return "PairQuality{" +
+                "x='" + x + '\'' +
+                ", y='" + y + '\'' +
+                ", days=" + days +
+                ", beta=" + beta +
+                ", adf=" + adf +
+                ", halfLife=" + halfLife +
+                '}';
+        }
+    }
+
+    private static final String SEP = ",";
+    private static final List<CsvWriter.Column<PairQuality>> COLUMNS = Arrays.asList(
+        column("x", PairQuality::getX),
+        column("y", PairQuality::getY),
+        column("xFingerprint", PairQuality::getXFingerprint),
+        column("yFingerprint", PairQuality::getYFingerprint),
+        column("days", PairQuality::getDays),
+        column("beta", PairQuality::getBeta),
+        column("adf", PairQuality::getAdf),
+        column("halfLife", PairQuality::getHalfLife),
+        column("lags", PairQuality::getLags)
+    );
+
+    private final Map<String, PairQuality> entries = new ConcurrentHashMap<>();
+
+    public static PairQualityIndex load(Path path) throws IOException {
+        PairQualityIndex index = new PairQualityIndex();
+        if (Files.exists(path)) {
+            try (Stream<String> lines = Files.lines(path)) {
+                CsvReader.parse(lines, SEP, true, parts -> new PairQuality(parts[0], parts[1],
+                    Long.parseLong(parts[2]), Long.parseLong(parts[3]), Integer.parseInt(parts[8]),
+                    Integer.parseInt(parts[4]), Double.parseDouble(parts[5]), Double.parseDouble(parts[6]), Double.parseDouble(parts[7])
+                )).forEach(index::put);
+            }
+        }
+        return index;
+    }
+
+    public void save(Path path) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            CsvWriter.create(COLUMNS).writeToStream(entries.values().stream(), out);
+        }
+    }
+
+    /**
+     * The cached entry for the pair if it was computed from data with the given fingerprints and with
+     * {@code lags} ADF lags.
+     */
+    public PairQuality get(String x, String y, long xFingerprint, long yFingerprint, int lags) {
+        PairQuality quality = entries.get(key(x, y));
+        return quality != null && quality.xFingerprint == xFingerprint && quality.yFingerprint == yFingerprint
+            && quality.lags == lags ? quality : null;
+    }
+
+    public void put(PairQuality quality) {
+        entries.put(key(quality.x, quality.y), quality);
+    }
+
+    public Collection<PairQuality> getAll() {
+        return entries.values();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static String key(String x, String y) {
+        return x + SEP + y;
+    }
+}
@@ -0,0 +1,267 @@
+package org.lst.trading.strategy.kalman;
+
+import org.lst.trading.lib.backtest.Backtest;
+import org.lst.trading.lib.series.ColumnarStore;
+import org.lst.trading.lib.series.DoubleSeries;
+import org.lst.trading.lib.series.MultipleDoubleSeries;
+import org.lst.trading.lib.util.DatabaseHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+import static org.lst.trading.lib.util.Util.check;
+
+/**
+ * Backtests {@link CointegrationTradingStrategy} on every ordered pair of a symbol universe. The universe is
+ * aligned once into a shared {@link ColumnarStore}; each pair task copies only the rows where both symbols
+ * have prices. At most a fixed number of pair tasks are in flight, completed pairs are streamed to a
+ * listener, and only the best {@code topK} results are retained.
+ */
+public class PairScanner {
+    private static final Logger log = LoggerFactory.getLogger(PairScanner.class);
+
+    public static final ToDoubleFunction<PairResult> BY_SHARPE = PairResult::getSharpe;
+    public static final ToDoubleFunction<PairResult> BY_DRAWDOWN = PairResult::getMaxDrawdownPercent;
+
+    public static class PairResult {
+        private final String x;
+        private final String y;
+        private final int days;
+        private final double pl;
+        private final double totalReturn;
+        private final double sharpe;
+        private final double maxDrawdownPercent;
+        private final int orderCount;
+
+        PairResult(String x, String y, Backtest.Result result) {
+            this.x = x;
+            this.y = y;
+            days = result.getDaysCount();
+            pl = result.getPl();
+            totalReturn = result.getReturn();
+            sharpe = result.getSharpe();
+            maxDrawdownPercent = result.getMaxDrawdownPercent();
+            orderCount = result.getOrders().size();
+        }
+
+        public String getX() {
+            return x;
+        }
+
+        public String getY() {
+            return y;
+        }
+
+        public int getDays() {
+            return days;
+        }
+
+        public double getPl() {
+            return pl;
+        }
+
+        public double getReturn() {
+            return totalReturn;
+        }
+
+        public double getSharpe() {
+            return sharpe;
+        }
+
+        public double getMaxDrawdownPercent() {
+            return maxDrawdownPercent;
+        }
+
+        public int getOrderCount() {
+            return orderCount;
+        }
+
+        @Override public String toString() {
+            return "PairResult{" +
+                "x='" + x + '\'' +
+                ", y='" + y + '\'' +
+                ", days=" + days +
+                ", pl=" + pl +
+                ", sharpe=" + sharpe +
+                ", maxDrawdownPercent=" + maxDrawdownPercent +
+                ", orderCount=" + orderCount +
+                '}';
+        }
+    }
+
+    private final List<String> symbols;
+    private final ColumnarStore universe;
+
+    private double deposit = 15000;
+    private double leverage = 4;
+    private double delta = 1e-10;
+    private double rVariance = 1e-7;
+    private int minDays = 250;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private PairPreScreen preScreen;
+
+    public PairScanner(List<DoubleSeries> series) {
+        symbols = new ArrayList<>();
+        for (DoubleSeries s : series) {
+            symbols.add(s.getName());
+        }
+        universe = ColumnarStore.align(series).seal();
+    }
+
+    public static PairScanner fromDatabase(DatabaseHelper db) {
+        List<DoubleSeries> series = new ArrayList<>();
+        for (String symbol : db.getSymbols()) {
+            series.add(db.getSeries(symbol).toAscending());
+        }
+        return new PairScanner(series);
+    }
+
+    public List<String> getSymbols() {
+        return symbols;
+    }
+
+    public void setDeposit(double deposit) {
+        this.deposit = deposit;
+    }
+
+    public void setLeverage(double leverage) {
+        this.leverage = leverage;
+    }
+
+    public void setFilter(double delta, double rVariance) {
+        this.delta = delta;
+        this.rVariance = rVariance;
+    }
+
+    /**
+     * Pairs with fewer common days are skipped.
+     */
+    public void setMinDays(int minDays) {
+        this.minDays = minDays;
+    }
+
+    public void setParallelism(int parallelism) {
+        check(parallelism > 0);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * When set, only pairs passing the pre-screen are backtested.
+     */
+    public void setPreScreen(PairPreScreen preScreen) {
+        this.preScreen = preScreen;
+    }
+
+    /**
+     * Scans all ordered pairs and returns the {@code topK} best by {@code score}. Every completed pair is also
+     * passed to {@code listener}, from the worker thread that ran it.
+     */
+    public List<PairResult> scan(int topK, ToDoubleFunction<PairResult> score, Consumer<PairResult> listener) {
+        check(topK > 0);
+        Comparator<PairResult> order = Comparator.comparingDouble(r -> {
+            double value = score.applyAsDouble(r);
+            return Double.isNaN(value) ? Double.NEGATIVE_INFINITY : value;
+        });
+        PriorityQueue<PairResult> best = new PriorityQueue<>(topK + 1, order);
+        AtomicLong completed = new AtomicLong();
+
+        int n = symbols.size();
+        int maxInFlight = parallelism * 2;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            long[] pairs = candidates();
+            for (int i = 0; i < pairs.length && failure.get() == null; i++) {
+                int x = (int) (pairs[i] / n);
+                int y = (int) (pairs[i] % n);
+                inFlight.acquireUninterruptibly();
+                executor.execute(() -> {
+                    try {
+                        PairResult result = run(x, y);
+                        if (result != null) {
+                            synchronized (best) {
+                                best.add(result);
+                                if (best.size() > topK) {
+                                    best.poll();
+                                }
+                            }
+                            completed.incrementAndGet();
+                            listener.accept(result);
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            inFlight.acquireUninterruptibly(maxInFlight);
+        } finally {
+            executor.shutdownNow();
+        }
+        if (failure.get() != null) {
+            throw new RuntimeException("Pair scan failed", failure.get());
+        }
+
+        log.debug("Scanned {} pairs of {} symbols", completed.get(), n);
+        PairResult[] ranked = best.toArray(new PairResult[0]);
+        Arrays.sort(ranked, order.reversed());
+        return Arrays.asList(ranked);
+    }
+
+    public List<PairResult> scan(int topK, ToDoubleFunction<PairResult> score) {
+        return scan(topK, score, r -> {
+        });
+    }
+
+    // Ordered pairs encoded as x * n + y
+    private long[] candidates() {
+        int n = symbols.size();
+        if (preScreen != null) {
+            long[] pairs = preScreen.screen(symbols, universe);
+            log.debug("{} of {} pairs passed the pre-screen", pairs.length, (long) n * (n - 1));
+            return pairs;
+        }
+        long[] pairs = new long[Math.toIntExact(Math.multiplyExact((long) n, n - 1))];
+        int k = 0;
+        for (int x = 0; x < n; x++) {
+            for (int y = 0; y < n; y++) {
+                if (x != y) {
+                    pairs[k++] = (long) x * n + y;
+                }
+            }
+        }
+        return pairs;
+    }
+
+    PairResult run(int x, int y) {
+        ColumnarStore prices = universe.selectComplete(x, y);
+        if (prices.size() < minDays) {
+            return null;
+        }
+
+        String xSymbol = symbols.get(x);
+        String ySymbol = symbols.get(y);
+        CointegrationTradingStrategy strategy = new CointegrationTradingStrategy(xSymbol, ySymbol);
+        strategy.setDelta(delta);
+        strategy.setRVariance(rVariance);
+        strategy.setRecordSeries(false);
+
+        Backtest backtest = new Backtest(deposit, new MultipleDoubleSeries(Arrays.asList(xSymbol, ySymbol), prices));
+        backtest.setLeverage(leverage);
+        return new PairResult(xSymbol, ySymbol, backtest.run(strategy));
+    }
+}
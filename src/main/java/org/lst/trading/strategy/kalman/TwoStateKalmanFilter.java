@@ -0,0 +1,59 @@
+package org.lst.trading.strategy.kalman;
+
+import lombok.Getter;
+
+/**
+ * Closed form of {@link KalmanFilter} for the cointegration model: two states (alpha, beta) following a random
+ * walk and one scalar observation {@code y = alpha + beta * x}. State and covariance live in primitive fields
+ * and are updated in place, following the same operation order as the matrix version.
+ */
+@Getter
+public class TwoStateKalmanFilter {
+    private final double processNoise; // Q = processNoise * I
+    private final double measurementVariance; // R
+
+    private double alpha;
+    private double beta;
+
+    // State covariance P
+    private double p00;
+    private double p01;
+    private double p10;
+    private double p11;
+
+    private double innovation;
+    private double innovationCovariance;
+
+    public TwoStateKalmanFilter(double processNoise, double measurementVariance) {
+        this.processNoise = processNoise;
+        this.measurementVariance = measurementVariance;
+    }
+
+    public void step(double x, double y) {
+        // Prediction, F = I and u = 0
+        double c00 = p00 + processNoise;
+        double c01 = p01;
+        double c10 = p10;
+        double c11 = p11 + processNoise;
+
+        // Observation, H = [1, x]
+        innovation = y - (alpha + x * beta);
+        innovationCovariance = (c00 + x * c10) + (c01 + x * c11) * x + measurementVariance;
+
+        // Update
+        double inverse = 1.0 / innovationCovariance;
+        double k0 = (c00 + c01 * x) * inverse;
+        double k1 = (c10 + c11 * x) * inverse;
+        alpha += k0 * innovation;
+        beta += k1 * innovation;
+
+        double i00 = 1 - k0;
+        double i01 = 0 - k0 * x;
+        double i10 = 0 - k1;
+        double i11 = 1 - k1 * x;
+        p00 = i00 * c00 + i01 * c10;
+        p01 = i00 * c01 + i01 * c11;
+        p10 = i10 * c00 + i11 * c10;
+        p11 = i10 * c01 + i11 * c11;
+    }
+}
@@ -0,0 +1,71 @@
+package org.lst.trading.lib.backtest;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.Test;
+import org.lst.trading.lib.series.DoubleSeries;
+import org.lst.trading.lib.series.MultipleDoubleSeries;
+import org.lst.trading.strategy.kalman.CointegrationTradingStrategy;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BacktestAllocationTest {
+    static final int ROWS = 200_000;
+    static final int CHUNK = 10_000;
+    static final int WARMUP_CHUNKS = 15;
+    // Slack for the measurement itself, far below one allocation per tick
+    static final long TOLERANCE = 1024;
+
+    @Test public void cointegrationTicksDoNotAllocate() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        Backtest backtest = new Backtest(10_000, cointegratedPair(ROWS));
+        backtest.initialize(strategy());
+        // Steps in chunks through one method, so it is compiled with the tick path before it is measured
+        for (int i = 0; i < WARMUP_CHUNKS; i++) {
+            assertEquals(CHUNK, step(backtest, CHUNK));
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        int steps = step(backtest, CHUNK);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(CHUNK, steps);
+        assertTrue(allocated + " bytes allocated over " + steps + " ticks", allocated <= TOLERANCE);
+    }
+
+    static int step(Backtest backtest, int n) {
+        int steps = 0;
+        while (steps < n && backtest.nextStep()) {
+            steps++;
+        }
+        return steps;
+    }
+
+    // The filter runs on every tick, but orders allocate, so the threshold is set to never trade
+    static CointegrationTradingStrategy strategy() {
+        CointegrationTradingStrategy strategy = new CointegrationTradingStrategy("X", "Y");
+        strategy.setRecordSeries(false);
+        strategy.setEntryThreshold(Double.POSITIVE_INFINITY);
+        return strategy;
+    }
+
+    static MultipleDoubleSeries cointegratedPair(int rows) {
+        Random random = new Random(42);
+        DoubleSeries x = new DoubleSeries("X");
+        DoubleSeries y = new DoubleSeries("Y");
+        double priceX = 50;
+        long time = 0;
+        for (int i = 0; i < rows; i++) {
+            priceX = Math.max(1, priceX + random.nextGaussian() * 0.5);
+            time += 86_400_000L;
+            x.add(priceX, time);
+            y.add(10 + 1.5 * priceX + random.nextGaussian(), time);
+        }
+        return new MultipleDoubleSeries(x, y);
+    }
+}
@@ -0,0 +1,98 @@
+package org.lst.trading.lib.backtest;
+
+import org.junit.Test;
+import org.lst.trading.lib.model.TradingContext;
+import org.lst.trading.lib.model.TradingStrategy;
+import org.lst.trading.lib.series.DoubleSeries;
+import org.lst.trading.lib.series.MultipleDoubleSeries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BacktestTradingContextTest {
+    static final int LOOKBACK = 3;
+    static final int DAYS = 8;
+
+    // Records the windows each tick sees; X is 1, 2, 3, ... and Y ten times that
+    static class HistoryStrategy implements TradingStrategy {
+        final double[] window = new double[LOOKBACK];
+        final List<double[]> xs = new ArrayList<>();
+        final List<double[]> ys = new ArrayList<>();
+        TradingContext context;
+
+        @Override public int getMaxLookback() {
+            return LOOKBACK;
+        }
+
+        @Override public void onStart(TradingContext context) {
+            this.context = context;
+        }
+
+        @Override public void onTick() {
+            int count = context.getHistory("X", window, LOOKBACK);
+            xs.add(Arrays.copyOf(window, count));
+            ys.add(context.getHistory("Y", LOOKBACK));
+        }
+    }
+
+    static MultipleDoubleSeries prices() {
+        DoubleSeries x = new DoubleSeries("X");
+        DoubleSeries y = new DoubleSeries("Y");
+        for (int i = 1; i <= DAYS; i++) {
+            x.add(i, i * 86_400_000L);
+            y.add(10 * i, i * 86_400_000L);
+        }
+        return new MultipleDoubleSeries(x, y);
+    }
+
+    @Test public void historyHoldsPastPricesNewestFirst() {
+        HistoryStrategy strategy = new HistoryStrategy();
+        new Backtest(10_000, prices()).run(strategy);
+
+        assertEquals(DAYS, strategy.xs.size());
+        // Tick t sees the prices before its own, and the window wraps around from the fourth tick on
+        for (int t = 0; t < DAYS; t++) {
+            int count = Math.min(t, LOOKBACK);
+            double[] x = new double[count];
+            double[] y = new double[count];
+            for (int lag = 0; lag < count; lag++) {
+                x[lag] = t - lag;
+                y[lag] = 10 * (t - lag);
+            }
+            assertArrayEquals("tick " + t, x, strategy.xs.get(t), 0);
+            assertArrayEquals("tick " + t, y, strategy.ys.get(t), 0);
+        }
+    }
+
+    @Test public void lookbackBeyondDeclaredMaximumIsRejected() {
+        HistoryStrategy strategy = new HistoryStrategy();
+        Backtest backtest = new Backtest(10_000, prices());
+        backtest.initialize(strategy);
+
+        assertEquals(0, strategy.context.getHistory("X", 0).length);
+        try {
+            strategy.context.getHistory("X", LOOKBACK + 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("maximum lookback"));
+        }
+    }
+
+    @Test public void unknownInstrumentIsRejected() {
+        HistoryStrategy strategy = new HistoryStrategy();
+        new Backtest(10_000, prices()).initialize(strategy);
+
+        try {
+            strategy.context.getHistory("Z", new double[LOOKBACK], LOOKBACK);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Z"));
+        }
+    }
+}
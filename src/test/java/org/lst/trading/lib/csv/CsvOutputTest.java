@@ -0,0 +1,64 @@
+package org.lst.trading.lib.csv;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CsvOutputTest {
+    static final double[] EDGE_VALUES = {
+        0.0, -0.0, 1, -1, 0.1, 0.2, 0.3, 1.0 / 3, 2.0 / 3, 123.456, -98.765, 1e-5, 1e-7, 100, 1e7, 1e15, 1e16,
+        Double.MIN_VALUE, -Double.MIN_VALUE, Double.MIN_NORMAL, Double.MIN_NORMAL - Double.MIN_VALUE, 1e-300, -1e-300,
+        1e300, -1e300, Double.MAX_VALUE, -Double.MAX_VALUE, 0x1p52, 0x1p53, 0x1p53 + 2, 0x1p60, 9e18, 9.2e18, 1e19,
+        Long.MAX_VALUE, Long.MIN_VALUE, 4.35, 0.07, 12345678.9, 0.000123, 9007199254740993.0,
+        Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+    };
+
+    static List<String> write(double[] values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (CsvOutput out = CsvOutput.of(bytes)) {
+            for (double value : values) {
+                out.number(value).endRow();
+            }
+        }
+        List<String> lines = new ArrayList<>();
+        for (String line : new String(bytes.toByteArray(), StandardCharsets.US_ASCII).split("\n")) {
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    static void assertRoundTrips(double[] values) throws IOException {
+        List<String> lines = write(values);
+        assertEquals(values.length, lines.size());
+        for (int i = 0; i < values.length; i++) {
+            String line = lines.get(i);
+            String message = Double.toString(values[i]) + " written as " + line;
+            assertEquals(message, Double.doubleToLongBits(values[i]), Double.doubleToLongBits(Double.parseDouble(line)));
+            assertTrue(message, line.length() <= Double.toString(values[i]).length());
+        }
+    }
+
+    @Test public void edgeValuesRoundTrip() throws IOException {
+        assertRoundTrips(EDGE_VALUES);
+    }
+
+    @Test public void randomValuesRoundTrip() throws IOException {
+        Random random = new Random(11);
+        double[] values = new double[300_000];
+        for (int i = 0; i < values.length; i += 3) {
+            // Arbitrary bit patterns, values of every magnitude, and prices with a few decimals
+            values[i] = Double.longBitsToDouble(random.nextLong());
+            values[i + 1] = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(50) - 25);
+            values[i + 2] = Math.round(random.nextDouble() * 1e6) / Math.pow(10, random.nextInt(7));
+        }
+        assertRoundTrips(values);
+    }
+}
@@ -0,0 +1,178 @@
+package org.lst.trading.lib.series;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SeriesFileTest {
+    static final List<String> NAMES = Arrays.asList("AAA", "B\u00e4ckerei", "C");
+    static final int ROWS = 10_000;
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    // Every fifth value of the second column and the whole last row are missing
+    static ColumnarStore store(int rows) {
+        ColumnarStore store = new ColumnarStore(NAMES.size());
+        for (int i = 0; i < rows; i++) {
+            int row = store.addRow(1_600_000_000_000L + i * 86_400_000L);
+            if (i == rows - 1) {
+                continue;
+            }
+            store.set(row, 0, i + 0.5);
+            if (i % 5 != 0) {
+                store.set(row, 1, -i * 1e-3);
+            }
+            store.set(row, 2, i % 2 == 0 ? 0.0 : -0.0);
+        }
+        return store;
+    }
+
+    static void assertSameValues(ColumnarStore expected, int from, ColumnarStore actual) {
+        for (int row = 0; row < actual.size(); row++) {
+            assertEquals(expected.getTime(from + row), actual.getTime(row));
+            for (int column = 0; column < expected.getColumnCount(); column++) {
+                double value = expected.get(from + row, column);
+                assertEquals("row " + row + " column " + column, Double.doubleToLongBits(value), Double.doubleToLongBits(actual.get(row, column)));
+                assertEquals(!Double.isNaN(value), actual.isPresent(row, column));
+            }
+        }
+    }
+
+    @Test public void roundTripKeepsNamesTimesAndValues() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("prices.sts");
+        ColumnarStore store = store(ROWS);
+        SeriesFile.write(path, NAMES, store);
+
+        MappedColumnarStore mapped = SeriesFile.open(path);
+        assertEquals(NAMES, mapped.getNames());
+        assertEquals(ROWS, mapped.size());
+        assertEquals(NAMES.size(), mapped.getColumnCount());
+        assertTrue(mapped.isSealed());
+        assertSameValues(store, 0, mapped);
+        assertArrayEquals(store.copyColumn(1), mapped.getColumnArray(1), 0);
+
+        MultipleDoubleSeries read = SeriesFile.read(path);
+        DoubleSeries column = read.getColumn("B\u00e4ckerei");
+        assertEquals(ROWS, column.size());
+        assertTrue(Double.isNaN(column.getValue(0)));
+        assertEquals(-1e-3, column.getValue(1), 0);
+    }
+
+    @Test public void headerLayout() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("prices.sts");
+        SeriesFile.write(path, NAMES, store(3));
+
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(SeriesFile.MAGIC, header.getInt());
+        assertEquals(SeriesFile.VERSION, header.getInt());
+        assertEquals(3, header.getInt());
+        assertEquals(NAMES.size(), header.getInt());
+        // 20 header bytes, then 4 + 3, 4 + 9 and 4 + 1 bytes of names, padded to 48
+        int dataOffset = header.getInt();
+        assertEquals(48, dataOffset);
+        assertEquals(3, header.getInt());
+        assertEquals(dataOffset + 8L * 3 * (NAMES.size() + 1), Files.size(path));
+        assertEquals(1_600_000_000_000L, header.getLong(dataOffset));
+        assertEquals(0.5, header.getDouble(dataOffset + 8 * 3), 0);
+    }
+
+    @Test public void emptyStoreRoundTrips() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("empty.sts");
+        SeriesFile.write(path, NAMES, new ColumnarStore(NAMES.size()));
+
+        MappedColumnarStore mapped = SeriesFile.open(path);
+        assertEquals(NAMES, mapped.getNames());
+        assertEquals(0, mapped.size());
+        assertEquals(0, mapped.getColumnArray(0).length);
+    }
+
+    @Test public void singleSeriesRoundTrips() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("one.sts");
+        DoubleSeries series = new DoubleSeries("X");
+        series.add(1.5, 1000);
+        series.add(Double.NaN, 2000);
+        series.add(Double.MIN_VALUE, 3000);
+        SeriesFile.write(path, series);
+
+        DoubleSeries read = SeriesFile.read(path).getColumn("X");
+        assertEquals(3, read.size());
+        assertArrayEquals(series.toArray(), read.toArray(), 0);
+        assertEquals(3000, read.getTime(2));
+    }
+
+    @Test public void slicesOfMappedStoreShareTheMapping() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("prices.sts");
+        ColumnarStore store = store(ROWS);
+        SeriesFile.write(path, NAMES, store);
+        MappedColumnarStore mapped = SeriesFile.open(path);
+
+        ColumnarStore slice = mapped.slice(100, 200);
+        assertTrue(slice instanceof MappedColumnarStore);
+        assertEquals(100, slice.size());
+        assertSameValues(store, 100, slice);
+        assertArrayEquals(store.copyColumn(0), mapped.getColumnArray(0), 0);
+        assertArrayEquals(Arrays.copyOfRange(store.copyColumn(0), 100, 200), slice.getColumnArray(0), 0);
+
+        ColumnarStore nested = slice.slice(10, 20);
+        assertSameValues(store, 110, nested);
+        assertEquals(store.getTime(110), nested.getTime(0));
+        assertEquals(0, nested.lowerBound(store.getTime(110)));
+    }
+
+    @Test public void rewriteReplacesFileWithoutLeavingTemporaries() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("prices.sts");
+        SeriesFile.write(path, NAMES, store(ROWS));
+        MappedColumnarStore before = SeriesFile.open(path);
+        SeriesFile.write(path, NAMES, store(5));
+
+        assertEquals(5, SeriesFile.open(path).size());
+        // The replaced file stays mapped for readers that opened it
+        assertEquals(ROWS, before.size());
+        assertEquals(ROWS - 1.5, before.get(ROWS - 2, 0), 0);
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            assertEquals(Arrays.asList(path), Arrays.asList(files.toArray()));
+        }
+    }
+
+    @Test public void fileWithoutMagicIsRejected() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("prices.csv");
+        Files.write(path, "timestamp,close\n2024-01-02,1.5\n".getBytes());
+        assertRejected(path, "Not a series file");
+    }
+
+    @Test public void truncatedFileIsRejected() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("prices.sts");
+        SeriesFile.write(path, NAMES, store(100));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 8);
+        }
+        assertRejected(path, "Truncated series file");
+    }
+
+    static void assertRejected(Path path, String message) throws IOException {
+        try {
+            SeriesFile.open(path);
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+        }
+        assertFalse(Files.notExists(path));
+    }
+}
@@ -0,0 +1,135 @@
+package org.lst.trading.lib.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.lst.trading.lib.series.DoubleSeries;
+import rx.Observable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BulkPriceFetcherTest {
+    StubPriceServer server;
+    BulkPriceFetcher fetcher;
+
+    @Before public void setUp() throws Exception {
+        server = new StubPriceServer();
+        fetcher = new BulkPriceFetcher(new AlphaVantageHistoricalPriceService("demo", server.getUrl()));
+        fetcher.setRetries(3, Duration.ofMillis(10));
+    }
+
+    @After public void tearDown() {
+        server.close();
+    }
+
+    @Test public void failedRequestsAreRetried() {
+        AtomicInteger failures = new AtomicInteger(2);
+        server.responder = query -> {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("Busy");
+            }
+            return server.prices(query);
+        };
+
+        DoubleSeries series = fetcher.getHistoricalAdjustedPrices("AAA").toBlocking().single();
+
+        assertEquals(server.days.size(), series.size());
+        assertEquals(3, server.queries.size());
+    }
+
+    @Test public void errorIsReportedAfterLastRetry() {
+        server.responder = query -> {
+            throw new IllegalStateException("Busy");
+        };
+
+        try {
+            fetcher.getHistoricalAdjustedPrices("AAA").toBlocking().single();
+            fail();
+        } catch (RuntimeException expected) {
+        }
+        assertEquals(4, server.queries.size());
+    }
+
+    @Test public void concurrentRequestsForOneSymbolShareOneDownload() throws Exception {
+        CountDownLatch received = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        server.responder = query -> {
+            received.countDown();
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            return server.prices(query);
+        };
+
+        List<DoubleSeries> results = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(2);
+        fetcher.getHistoricalAdjustedPrices("AAA").subscribe(results::add, e -> done.countDown(), done::countDown);
+        assertTrue(received.await(10, TimeUnit.SECONDS));
+        // The first request is now in flight at the server
+        fetcher.getHistoricalAdjustedPrices("AAA").subscribe(results::add, e -> done.countDown(), done::countDown);
+        release.countDown();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, server.queries.size());
+        assertEquals(2, results.size());
+        assertTrue(results.get(0) == results.get(1));
+
+        // Once finished, the next request downloads again
+        fetcher.getHistoricalAdjustedPrices("AAA").toBlocking().single();
+        assertEquals(2, server.queries.size());
+    }
+
+    @Test public void requestsAreSpacedByTheRateLimit() {
+        List<Long> arrivals = Collections.synchronizedList(new ArrayList<>());
+        server.responder = query -> {
+            arrivals.add(System.nanoTime());
+            return server.prices(query);
+        };
+        // One request every 100 ms, even with all five allowed to run at once
+        fetcher.setRateLimit(10, Duration.ofSeconds(1));
+        fetcher.setMaxConcurrency(5);
+
+        List<String> symbols = Arrays.asList("AAA", "BBB", "CCC", "DDD", "EEE");
+        List<DoubleSeries> fetched = fetcher.fetchAll(symbols).toList().toBlocking().single();
+
+        assertEquals(symbols.size(), fetched.size());
+        List<Long> sorted = new ArrayList<>(arrivals);
+        Collections.sort(sorted);
+        for (int i = 1; i < sorted.size(); i++) {
+            long gap = sorted.get(i) - sorted.get(i - 1);
+            // Some slack for when the timers fire and the requests reach the server
+            assertTrue("Requests " + Duration.ofNanos(gap).toMillis() + " ms apart", gap >= TimeUnit.MILLISECONDS.toNanos(60));
+        }
+        assertTrue(sorted.get(sorted.size() - 1) - sorted.get(0) >= TimeUnit.MILLISECONDS.toNanos(350));
+    }
+
+    @Test public void failedSymbolDoesNotStopTheOthers() {
+        server.responder = query -> {
+            if ("BBB".equals(query.get("symbol"))) {
+                throw new IllegalStateException("Unknown symbol");
+            }
+            return server.prices(query);
+        };
+        fetcher.setRetries(0, Duration.ZERO);
+
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        Observable<DoubleSeries> all = fetcher.fetchAll(Arrays.asList("AAA", "BBB", "CCC"))
+                .doOnNext(series -> received.add(series.getName()));
+        try {
+            all.toBlocking().last();
+            fail();
+        } catch (RuntimeException expected) {
+        }
+        Collections.sort(received);
+        assertEquals(Arrays.asList("AAA", "CCC"), received);
+    }
+}
@@ -0,0 +1,169 @@
+package org.lst.trading.lib.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.lst.trading.lib.series.DoubleSeries;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CachingHistoricalPriceServiceTest {
+    static final Duration TTL = Duration.ofHours(1);
+
+    static class MutableClock extends Clock {
+        Instant now = Instant.parse("2024-03-15T20:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override public Instant instant() {
+            return now;
+        }
+    }
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    StubPriceServer server;
+    MutableClock clock = new MutableClock();
+    Path directory;
+    long seriesBytes;
+
+    @Before public void setUp() throws Exception {
+        server = new StubPriceServer();
+        directory = folder.getRoot().toPath().resolve("cache");
+        seriesBytes = CachingHistoricalPriceService.BYTES_PER_SERIES + CachingHistoricalPriceService.BYTES_PER_ENTRY * server.days.size();
+    }
+
+    @After public void tearDown() {
+        server.close();
+    }
+
+    CachingHistoricalPriceService cache() throws Exception {
+        CachingHistoricalPriceService cache = new CachingHistoricalPriceService(new AlphaVantageHistoricalPriceService("demo", server.getUrl()), directory);
+        cache.setClock(clock);
+        cache.setTtl(TTL);
+        return cache;
+    }
+
+    static DoubleSeries get(CachingHistoricalPriceService cache, String symbol) {
+        return cache.getHistoricalAdjustedPrices(symbol).toBlocking().single();
+    }
+
+    @Test public void leastRecentlyUsedSeriesIsEvictedFirst() throws Exception {
+        CachingHistoricalPriceService cache = cache();
+        cache.setMaxBytes(2 * seriesBytes);
+
+        DoubleSeries a = get(cache, "AAA");
+        get(cache, "BBB");
+        assertSame(a, get(cache, "AAA"));
+        // BBB is now the least recently used
+        get(cache, "CCC");
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2 * seriesBytes, cache.getEstimatedBytes());
+        assertSame(a, get(cache, "AAA"));
+        DoubleSeries b = get(cache, "BBB");
+        assertEquals(server.days.size(), b.size());
+        assertEquals("BBB", b.getName());
+
+        assertEquals(3, server.queries.size());
+        assertEquals(3, cache.getMisses());
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getDiskHits());
+        // Reading BBB back from disk evicted CCC
+        assertEquals(2, cache.getEvictions());
+    }
+
+    @Test public void diskTierSurvivesNewInstance() throws Exception {
+        DoubleSeries fetched = get(cache(), "AAA");
+
+        CachingHistoricalPriceService cache = cache();
+        DoubleSeries read = get(cache, "AAA");
+
+        assertEquals(1, server.queries.size());
+        assertEquals(1, cache.getDiskHits());
+        assertEquals(0, cache.getMisses());
+        assertEquals(fetched.size(), read.size());
+        for (int i = 0; i < read.size(); i++) {
+            assertEquals(fetched.getTime(i), read.getTime(i));
+            assertEquals(fetched.getValue(i), read.getValue(i), 0);
+        }
+    }
+
+    @Test public void entriesOfBothTiersExpire() throws Exception {
+        CachingHistoricalPriceService cache = cache();
+        get(cache, "AAA");
+        clock.advance(TTL.dividedBy(2));
+        get(cache, "AAA");
+        assertEquals(1, cache.getHits());
+        assertEquals(0, cache.getDiskHits());
+
+        clock.advance(TTL);
+        get(cache, "AAA");
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, cache.getDiskHits());
+        assertEquals(2, server.queries.size());
+
+        // Files are stamped with the clock, so a new instance reads the refetched one until it expires too
+        CachingHistoricalPriceService restarted = cache();
+        get(restarted, "AAA");
+        assertEquals(2, server.queries.size());
+        clock.advance(TTL.multipliedBy(2));
+        CachingHistoricalPriceService expired = cache();
+        get(expired, "AAA");
+        assertEquals(0, expired.getDiskHits());
+        assertEquals(1, expired.getMisses());
+        assertEquals(3, server.queries.size());
+    }
+
+    @Test public void concurrentSubscribersShareOneLoad() throws Exception {
+        CountDownLatch received = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        server.responder = query -> {
+            received.countDown();
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            return server.prices(query);
+        };
+        CachingHistoricalPriceService cache = cache();
+
+        List<DoubleSeries> results = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(3);
+        cache.getHistoricalAdjustedPrices("AAA").subscribe(results::add, e -> done.countDown(), done::countDown);
+        assertTrue(received.await(10, TimeUnit.SECONDS));
+        cache.getHistoricalAdjustedPrices("AAA").subscribe(results::add, e -> done.countDown(), done::countDown);
+        cache.getHistoricalAdjustedPrices("AAA").subscribe(results::add, e -> done.countDown(), done::countDown);
+        release.countDown();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, server.queries.size());
+        assertEquals(1, cache.getMisses());
+        assertEquals(3, results.size());
+        assertSame(results.get(0), results.get(1));
+        assertSame(results.get(0), results.get(2));
+    }
+}
@@ -0,0 +1,93 @@
+package org.lst.trading.lib.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.lst.trading.lib.series.DoubleSeries;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PriceRefresherTest {
+    static final Clock CLOCK = Clock.fixed(StubPriceServer.LAST_DAY.atTime(20, 0).toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+
+    StubPriceServer server;
+    PriceDatabase db;
+    PriceRefresher refresher;
+
+    @Before public void setUp() throws Exception {
+        server = new StubPriceServer();
+        db = new PriceDatabase("jdbc:sqlite::memory:");
+        AlphaVantageHistoricalPriceService service = new AlphaVantageHistoricalPriceService("demo", server.getUrl());
+        service.setClock(CLOCK);
+        refresher = new PriceRefresher(service, db);
+        refresher.setClock(CLOCK);
+    }
+
+    @After public void tearDown() {
+        db.close();
+        server.close();
+    }
+
+    @Test public void newSymbolGetsFullHistory() throws Exception {
+        DoubleSeries added = refresher.refresh("AAA").toBlocking().single();
+
+        assertEquals("full", server.queries.get(0).get("outputsize"));
+        assertEquals(server.days.size(), added.size());
+        assertStored(StubPriceServer.FIRST_DAY);
+    }
+
+    @Test public void recentSymbolGetsCompactDelta() throws Exception {
+        LocalDate last = LocalDate.of(2024, 3, 8);
+        store(last);
+
+        DoubleSeries added = refresher.refresh("AAA").toBlocking().single();
+
+        assertEquals(1, server.queries.size());
+        assertEquals("compact", server.queries.get(0).get("outputsize"));
+        assertEquals(5, added.size());
+        assertEquals(LocalDate.of(2024, 3, 11).toEpochDay(), added.getValue(0), 0);
+        assertStored(last);
+    }
+
+    @Test public void staleSymbolGetsFullHistoryAfterLastDay() throws Exception {
+        LocalDate last = StubPriceServer.LAST_DAY.minusDays(AlphaVantageHistoricalPriceService.COMPACT_DAYS + 1);
+        store(last);
+
+        DoubleSeries added = refresher.refresh("AAA").toBlocking().single();
+
+        assertEquals("full", server.queries.get(0).get("outputsize"));
+        assertTrue(added.getValue(0) > last.toEpochDay());
+        assertStored(last);
+    }
+
+    @Test public void upToDateSymbolIsNotRequested() throws Exception {
+        store(StubPriceServer.LAST_DAY);
+
+        DoubleSeries added = refresher.refresh("AAA").toBlocking().single();
+
+        assertEquals(0, added.size());
+        assertTrue(server.queries.isEmpty());
+    }
+
+    private void store(LocalDate day) throws Exception {
+        DoubleSeries series = new DoubleSeries("AAA");
+        series.add(day.toEpochDay(), day.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli());
+        db.insert(series);
+    }
+
+    // Every served day from the first stored one on is stored once, with its close
+    private void assertStored(LocalDate first) throws Exception {
+        DoubleSeries stored = db.getSeries("AAA");
+        int from = server.days.indexOf(first);
+        assertEquals(server.days.size() - from, stored.size());
+        for (int i = 0; i < stored.size(); i++) {
+            assertEquals(server.days.get(from + i).toEpochDay(), stored.getValue(i), 0);
+        }
+        assertEquals(StubPriceServer.LAST_DAY, db.getLastDay("AAA"));
+    }
+}
@@ -0,0 +1,96 @@
+package org.lst.trading.lib.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local stand-in for the Alpha Vantage daily prices endpoint. Serves the weekdays from {@link #FIRST_DAY} to
+ * {@link #LAST_DAY} newest first, with the epoch day as the close, and records the query of every request.
+ */
+class StubPriceServer implements Closeable {
+    static final LocalDate FIRST_DAY = LocalDate.of(2023, 1, 2);
+    static final LocalDate LAST_DAY = LocalDate.of(2024, 3, 15);
+
+    interface Responder {
+        String respond(Map<String, String> query) throws Exception;
+    }
+
+    final HttpServer server;
+    final List<Map<String, String>> queries = Collections.synchronizedList(new ArrayList<>());
+    final List<LocalDate> days = new ArrayList<>();
+    volatile Responder responder = this::prices;
+
+    StubPriceServer() throws IOException {
+        for (LocalDate day = FIRST_DAY; !day.isAfter(LAST_DAY); day = day.plusDays(1)) {
+            if (day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                days.add(day);
+            }
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/query", this::handle);
+        server.start();
+    }
+
+    String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/query";
+    }
+
+    /**
+     * Prices as the endpoint returns them: the whole history, or the latest 100 days for
+     * {@code outputsize=compact}.
+     */
+    String prices(Map<String, String> query) {
+        int from = "compact".equals(query.get("outputsize")) ? Math.max(days.size() - 100, 0) : 0;
+        StringBuilder csv = new StringBuilder("timestamp,open,high,low,close,volume\n");
+        for (int i = days.size() - 1; i >= from; i--) {
+            long close = days.get(i).toEpochDay();
+            csv.append(days.get(i)).append(",1,2,0.5,").append(close).append(",100\n");
+        }
+        return csv.toString();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        Map<String, String> query = new HashMap<>();
+        for (String parameter : exchange.getRequestURI().getQuery().split("&")) {
+            String[] pair = parameter.split("=", 2);
+            query.put(pair[0], pair.length > 1 ? pair[1] : "");
+        }
+        queries.add(query);
+
+        int status = 200;
+        String body;
+        try {
+            body = responder.respond(query);
+        } catch (Exception e) {
+            status = 503;
+            body = String.valueOf(e.getMessage());
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override public void close() {
+        server.stop(0);
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+    }
+}
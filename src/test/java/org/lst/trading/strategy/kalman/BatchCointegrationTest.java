@@ -0,0 +1,132 @@
+package org.lst.trading.strategy.kalman;
+
+import org.junit.Test;
+import org.lst.trading.lib.backtest.Backtest;
+import org.lst.trading.lib.model.ClosedOrder;
+import org.lst.trading.lib.series.DoubleSeries;
+import org.lst.trading.lib.series.MultipleDoubleSeries;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BatchCointegrationTest {
+    static final int PAIRS = 37;
+    static final int STEPS = 5_000;
+    static final long DAY = 86_400_000L;
+
+    final double[][] xs = new double[STEPS][PAIRS];
+    final double[][] ys = new double[STEPS][PAIRS];
+
+    public BatchCointegrationTest() {
+        Random random = new Random(5);
+        for (int k = 0; k < PAIRS; k++) {
+            double x = 50;
+            double noise = 0;
+            for (int t = 0; t < STEPS; t++) {
+                x *= 1 + random.nextGaussian() * 0.01;
+                noise = 0.9 * noise + random.nextGaussian() * 0.8;
+                xs[t][k] = x;
+                ys[t][k] = 10 + (1 + k * 0.05) * x + noise;
+            }
+        }
+    }
+
+    @Test public void vectorKernelMatchesCointegration() {
+        BatchKalmanFilter filter = new BatchKalmanFilter(new double[PAIRS], new double[PAIRS]);
+        assertTrue("Tests run with --add-modules jdk.incubator.vector", filter.isVectorized());
+        assertSameAsCointegration(true);
+    }
+
+    @Test public void scalarKernelMatchesCointegration() {
+        assertSameAsCointegration(false);
+    }
+
+    // Different settings per pair, so a kernel that mixes up lanes fails
+    void assertSameAsCointegration(boolean allowVector) {
+        double[] delta = new double[PAIRS];
+        double[] processNoise = new double[PAIRS];
+        double[] rVariance = new double[PAIRS];
+        Cointegration[] expected = new Cointegration[PAIRS];
+        for (int k = 0; k < PAIRS; k++) {
+            delta[k] = Math.pow(10, -10 + k % 7);
+            processNoise[k] = delta[k] / (1 - delta[k]);
+            rVariance[k] = Math.pow(10, -7 + k % 5);
+            expected[k] = new Cointegration(delta[k], rVariance[k]);
+        }
+        BatchKalmanFilter filter = new BatchKalmanFilter(processNoise, rVariance, allowVector);
+        assertEquals(allowVector, filter.isVectorized());
+
+        for (int t = 0; t < STEPS; t++) {
+            filter.step(xs[t], ys[t]);
+            for (int k = 0; k < PAIRS; k++) {
+                expected[k].step(xs[t][k], ys[t][k]);
+                String step = "step " + t + " pair " + k;
+                assertEquals(step + " alpha", expected[k].getAlpha(), filter.getAlpha(k), 0);
+                assertEquals(step + " beta", expected[k].getBeta(), filter.getBeta(k), 0);
+                assertEquals(step + " error", expected[k].getError(), filter.getInnovation(k), 0);
+                assertEquals(step + " variance", expected[k].getVariance(), filter.getInnovationCovariance(k), 0);
+            }
+        }
+    }
+
+    @Test public void signalsMatchStrategyOrders() {
+        BatchCointegration batch = BatchCointegration.of(PAIRS, 1e-10, 1e-7, 1);
+        List<List<String>> trades = new ArrayList<>();
+        int[] entries = new int[PAIRS];
+        boolean[] longs = new boolean[PAIRS];
+        for (int k = 0; k < PAIRS; k++) {
+            trades.add(new ArrayList<>());
+        }
+        for (int t = 0; t < STEPS; t++) {
+            batch.step(xs[t], ys[t]);
+            for (int k = 0; k < PAIRS; k++) {
+                int signal = batch.getSignal(k);
+                if (signal == BatchCointegration.ENTER_LONG || signal == BatchCointegration.ENTER_SHORT) {
+                    entries[k] = t;
+                    longs[k] = signal == BatchCointegration.ENTER_LONG;
+                } else if (signal == BatchCointegration.EXIT) {
+                    trades.get(k).add(trade(longs[k], entries[k], t));
+                }
+            }
+        }
+
+        for (int k = 0; k < PAIRS; k += 6) {
+            List<String> expected = trades.get(k);
+            if (batch.getPosition(k) != 0) {
+                // The backtest closes what is still open on the last day
+                expected.add(trade(longs[k], entries[k], STEPS - 1));
+            }
+            assertFalse(expected.isEmpty());
+            assertEquals("pair " + k, expected, strategyTrades(k));
+        }
+    }
+
+    static String trade(boolean isLong, int entry, int exit) {
+        return (isLong ? "long " : "short ") + entry + "-" + exit;
+    }
+
+    List<String> strategyTrades(int k) {
+        DoubleSeries x = new DoubleSeries("X");
+        DoubleSeries y = new DoubleSeries("Y");
+        for (int t = 0; t < STEPS; t++) {
+            x.add(xs[t][k], t * DAY);
+            y.add(ys[t][k], t * DAY);
+        }
+        CointegrationTradingStrategy strategy = new CointegrationTradingStrategy("X", "Y");
+        strategy.setRecordSeries(false);
+        Backtest.Result result = new Backtest(1e6, new MultipleDoubleSeries(x, y)).run(strategy);
+
+        List<String> trades = new ArrayList<>();
+        for (ClosedOrder order : result.getOrders()) {
+            if (order.getInstrument().equals("Y")) {
+                trades.add(trade(order.isLong(), (int) (order.getOpenInstant().toEpochMilli() / DAY), (int) (order.getCloseInstant().toEpochMilli() / DAY)));
+            }
+        }
+        return trades;
+    }
+}
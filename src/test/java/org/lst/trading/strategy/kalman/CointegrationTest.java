@@ -0,0 +1,43 @@
+package org.lst.trading.strategy.kalman;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class CointegrationTest {
+    static final int STEPS = 2_000;
+
+    @Test public void pairFilterMatchesMatrixFilterWithStrategyDefaults() {
+        assertSameSteps(1e-10, 1e-7);
+    }
+
+    @Test public void pairFilterMatchesMatrixFilterWithFastAdaption() {
+        assertSameSteps(1e-4, 1e-3);
+    }
+
+    static void assertSameSteps(double delta, double rVariance) {
+        Cointegration pair = new Cointegration(delta, rVariance);
+        Cointegration matrix = new Cointegration(delta, rVariance, true);
+        Random random = new Random(7);
+        double x = 50;
+        for (int i = 0; i < STEPS; i++) {
+            x = Math.max(1, x + random.nextGaussian() * 0.5);
+            double y = 10 + 1.5 * x + random.nextGaussian();
+            pair.step(x, y);
+            matrix.step(x, y);
+
+            String step = "step " + i;
+            assertIdentical(step + " alpha", matrix.getAlpha(), pair.getAlpha());
+            assertIdentical(step + " beta", matrix.getBeta(), pair.getBeta());
+            assertIdentical(step + " error", matrix.getError(), pair.getError());
+            assertIdentical(step + " variance", matrix.getVariance(), pair.getVariance());
+        }
+    }
+
+    // The two-state filter does the la4j filter's operations in the same order, so the values are identical
+    static void assertIdentical(String message, double expected, double actual) {
+        assertEquals(message, Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+    }
+}
@@ -0,0 +1,52 @@
+package org.lst.trading.strategy.kalman;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API implementation of {@link BatchKalmanFilter#scalarStep}. Only loaded when the
+ * {@code jdk.incubator.vector} module is present; the tail that doesn't fill a vector runs scalar.
+ */
+class VectorKalmanKernel implements BatchKalmanFilter.Kernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override public void step(BatchKalmanFilter f, double[] xs, double[] ys, int from, int to) {
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, xs, i);
+            DoubleVector q = DoubleVector.fromArray(SPECIES, f.processNoise, i);
+            DoubleVector c00 = DoubleVector.fromArray(SPECIES, f.p00, i).add(q);
+            DoubleVector c01 = DoubleVector.fromArray(SPECIES, f.p01, i);
+            DoubleVector c10 = DoubleVector.fromArray(SPECIES, f.p10, i);
+            DoubleVector c11 = DoubleVector.fromArray(SPECIES, f.p11, i).add(q);
+            DoubleVector alpha = DoubleVector.fromArray(SPECIES, f.alpha, i);
+            DoubleVector beta = DoubleVector.fromArray(SPECIES, f.beta, i);
+
+            DoubleVector e = DoubleVector.fromArray(SPECIES, ys, i).sub(alpha.add(x.mul(beta)));
+            DoubleVector s = c00.add(x.mul(c10))
+                .add(c01.add(x.mul(c11)).mul(x))
+                .add(DoubleVector.fromArray(SPECIES, f.measurementVariance, i));
+
+            DoubleVector inverse = DoubleVector.broadcast(SPECIES, 1.0).div(s);
+            DoubleVector k0 = c00.add(c01.mul(x)).mul(inverse);
+            DoubleVector k1 = c10.add(c11.mul(x)).mul(inverse);
+            alpha.add(k0.mul(e)).intoArray(f.alpha, i);
+            beta.add(k1.mul(e)).intoArray(f.beta, i);
+
+            DoubleVector zero = DoubleVector.zero(SPECIES);
+            DoubleVector one = DoubleVector.broadcast(SPECIES, 1.0);
+            DoubleVector i00 = one.sub(k0);
+            DoubleVector i01 = zero.sub(k0.mul(x));
+            DoubleVector i10 = zero.sub(k1);
+            DoubleVector i11 = one.sub(k1.mul(x));
+            i00.mul(c00).add(i01.mul(c10)).intoArray(f.p00, i);
+            i00.mul(c01).add(i01.mul(c11)).intoArray(f.p01, i);
+            i10.mul(c00).add(i11.mul(c10)).intoArray(f.p10, i);
+            i10.mul(c01).add(i11.mul(c11)).intoArray(f.p11, i);
+
+            e.intoArray(f.innovation, i);
+            s.intoArray(f.innovationCovariance, i);
+        }
+        BatchKalmanFilter.scalarStep(f, xs, ys, i, to);
+    }
+}